@@ -22,6 +22,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.android.material.navigation.NavigationView;
@@ -40,7 +41,10 @@ import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.appcompat.app.AppCompatActivity;
 
 import io.netbird.client.databinding.ActivityMainBinding;
+import io.netbird.client.tool.ConnectTimeline;
+import io.netbird.client.tool.EngineState;
 import io.netbird.client.tool.NetworkChangeNotifier;
+import io.netbird.client.tool.RouteDelta;
 import io.netbird.client.tool.ServiceStateListener;
 import io.netbird.client.tool.VPNService;
 import io.netbird.client.ui.PreferenceUI;
@@ -53,13 +57,6 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
     private StateListAnimator stateAnim;
 
-    private enum ConnectionState {
-        UNKNOWN,
-        CONNECTED,
-        CONNECTING,
-        DISCONNECTING,
-        DISCONNECTED
-    }
     private final static String LOGTAG = "NBMainActivity";
     private VPNService.MyLocalBinder mBinder;
 
@@ -74,8 +71,8 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
     private boolean isSSOFinishedWell = false;
 
-    // Last known state for UI updates
-    private ConnectionState lastKnownState = ConnectionState.UNKNOWN;
+    // Last known state for UI updates, null until the service reported one
+    private EngineState lastKnownState = null;
     private String lastFqdn = null;
     private String lastIp = null;
     private long lastPeersCount = 0;
@@ -86,6 +83,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         public void onServiceConnected(ComponentName className, IBinder binder) {
             Log.d(LOGTAG, "on service connected");
             mBinder = (VPNService.MyLocalBinder) binder;
+            if (lastKnownState == null) {
+                lastKnownState = mBinder.engineState();
+            }
             mBinder.setConnectionStateListener(connectionListener);
             mBinder.addServiceStateListener(serviceStateListener);
         }
@@ -299,6 +299,16 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         return mBinder.networks();
     }
 
+    @Override
+    public List<ConnectTimeline> getConnectTimelines() {
+        if (mBinder == null) {
+            Log.w(LOGTAG, "VPN binder is null");
+            return Collections.emptyList();
+        }
+
+        return mBinder.connectTimelines();
+    }
+
 
     @Override
     public void registerServiceStateListener(StateListener listener) {
@@ -307,7 +317,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
         serviceStateListeners.add(listener);
 
-        if(lastKnownState == ConnectionState.UNKNOWN) {
+        if(lastKnownState == null) {
             return; // No state to notify yet
         }
 
@@ -315,13 +325,15 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             case CONNECTED:
                 listener.onConnected();
                 break;
+            case STARTING:
             case CONNECTING:
                 listener.onConnecting();
                 break;
-            case DISCONNECTING:
+            case STOPPING:
                 listener.onDisconnecting();
                 break;
-            case DISCONNECTED:
+            case STOPPED:
+            case FAILED:
                 listener.onDisconnected();
                 break;
         }
@@ -416,9 +428,13 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     private final BroadcastReceiver serviceMessageReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
+            RouteDelta delta = NetworkChangeNotifier.routeDelta(intent);
+            if (delta.isEmpty()) {
+                return;
+            }
             PreferenceUI.setRouteChangedNotification(context);
             for(StateListener listener : serviceStateListeners) {
-                listener.routeChanged();
+                listener.routeChanged(delta);
             }
         }
     };
@@ -434,7 +450,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         public void onConnected() {
-            lastKnownState = ConnectionState.CONNECTED;
+            lastKnownState = EngineState.CONNECTED;
 
             isSSOFinishedWell = true;
             for (StateListener listener : serviceStateListeners) {
@@ -443,7 +459,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         public void onConnecting() {
-            lastKnownState = ConnectionState.CONNECTING;
+            lastKnownState = EngineState.CONNECTING;
 
             isSSOFinishedWell = true;
             for (StateListener listener : serviceStateListeners) {
@@ -452,7 +468,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         public void onDisconnecting() {
-            lastKnownState = ConnectionState.DISCONNECTING;
+            lastKnownState = EngineState.STOPPING;
 
             for (StateListener listener : serviceStateListeners) {
                 listener.onDisconnecting();
@@ -460,7 +476,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         public void onDisconnected() {
-            lastKnownState = ConnectionState.DISCONNECTED;
+            lastKnownState = EngineState.STOPPED;
 
             isSSOFinishedWell = false;
             for (StateListener listener : serviceStateListeners) {
@@ -8,6 +8,7 @@ import androidx.appcompat.app.AppCompatDelegate;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import io.netbird.client.tool.NetworkChangeNotifier;
+import io.netbird.client.tool.SettingsStore;
 
 public class MyApplication extends Application {
 
@@ -18,6 +19,7 @@ public class MyApplication extends Application {
         SharedPreferences prefs = getSharedPreferences("settings", MODE_PRIVATE);
         int themeMode = prefs.getInt("theme_mode", AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM);
         AppCompatDelegate.setDefaultNightMode(themeMode);
+        SettingsStore.warmUp(this);
         registerNetworkReceiver();
     }
 
@@ -14,6 +14,8 @@ import androidx.core.app.NotificationCompat;
 
 import java.util.Arrays;
 
+import io.netbird.client.tool.NetworkChangeNotifier;
+import io.netbird.client.tool.RouteDelta;
 import io.netbird.client.ui.PreferenceUI;
 
 public class RouteChangeReceiver extends BroadcastReceiver {
@@ -21,13 +23,17 @@ public class RouteChangeReceiver extends BroadcastReceiver {
 
     @Override
     public void onReceive(Context context, Intent intent) {
+        RouteDelta delta = NetworkChangeNotifier.routeDelta(intent);
+        if (delta.isEmpty()) {
+            return;
+        }
         if (isAppInBackground(context) && !isNotificationVisible(context)) {
-            showNotification(context);
+            showNotification(context, delta);
             PreferenceUI.setRouteChangedNotification(context);
         }
     }
 
-    private void showNotification(Context context) {
+    private void showNotification(Context context, RouteDelta delta) {
         NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         String channelId = "routes_changed";
         Intent intent = new Intent(context, MainActivity.class);
@@ -49,7 +55,9 @@ public class RouteChangeReceiver extends BroadcastReceiver {
                 .setSmallIcon(io.netbird.client.tool.R.drawable.notification_icon)
                 .setColor(Color.GRAY)
                 .setContentTitle("Stale configuration")
-                .setContentText("Your network administrator changed the configuration.")
+                .setContentText("Your network administrator changed the configuration ("
+                        + delta.getAdded().size() + " routes added, "
+                        + delta.getRemoved().size() + " removed).")
                 .setContentIntent(pendingIntent)
                 .setOnlyAlertOnce(true);
 
@@ -1,5 +1,8 @@
 package io.netbird.client;
 
+import java.util.List;
+
+import io.netbird.client.tool.ConnectTimeline;
 import io.netbird.gomobile.android.NetworkArray;
 import io.netbird.gomobile.android.PeerInfoArray;
 
@@ -10,4 +13,5 @@ public interface ServiceAccessor {
 
     NetworkArray getNetworks();
     void stopEngine();
+    List<ConnectTimeline> getConnectTimelines();
 }
\ No newline at end of file
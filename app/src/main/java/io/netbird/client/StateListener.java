@@ -1,11 +1,13 @@
 package io.netbird.client;
 
+import io.netbird.client.tool.RouteDelta;
+
 public interface StateListener {
     void onEngineStarted();
     void onEngineStopped();
     void onAddressChanged(String var1, String var2);
 
-    void routeChanged();
+    void routeChanged(RouteDelta delta);
 
     void onConnected();
 
@@ -17,11 +17,19 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.fragment.app.Fragment;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import io.netbird.client.R;
+import io.netbird.client.ServiceAccessor;
 import io.netbird.client.databinding.ComponentSwitchBinding;
 import io.netbird.client.databinding.FragmentAdvancedBinding;
+import io.netbird.client.tool.ConfigWriter;
+import io.netbird.client.tool.ConnectTimeline;
 import io.netbird.client.tool.Logcat;
 import io.netbird.client.tool.Preferences;
+import io.netbird.client.tool.Settings;
+import io.netbird.client.tool.SettingsStore;
 
 
 public class AdvancedFragment extends Fragment {
@@ -30,7 +38,7 @@ public class AdvancedFragment extends Fragment {
     private static final String LOGTAG = "AdvancedFragment";
 
     private FragmentAdvancedBinding binding;
-    private io.netbird.gomobile.android.Preferences goPreferences;
+    private ConfigWriter configWriter;
 
     private void showReconnectionNeededWarningDialog() {
         final View dialogView = getLayoutInflater().inflate(R.layout.dialog_simple_alert_message, null);
@@ -43,11 +51,11 @@ public class AdvancedFragment extends Fragment {
         alertDialog.show();
     }
 
-    private void configureForceRelayConnectionSwitch(@NonNull ComponentSwitchBinding binding, @NonNull Preferences preferences) {
+    private void configureForceRelayConnectionSwitch(@NonNull ComponentSwitchBinding binding, @NonNull Preferences preferences, @NonNull Settings settings) {
         binding.switchTitle.setText(R.string.advanced_force_relay_conn);
         binding.switchDescription.setText(R.string.advanced_force_relay_conn_desc);
 
-        binding.switchControl.setChecked(preferences.isConnectionForceRelayed());
+        binding.switchControl.setChecked(settings.isConnectionForceRelayed());
         binding.switchControl.setOnCheckedChangeListener((buttonView, isChecked) -> {
             if (isChecked) {
                 preferences.enableForcedRelayConnection();
@@ -59,16 +67,27 @@ public class AdvancedFragment extends Fragment {
         });
     }
 
+    private void configureLanBypassSwitch(@NonNull ComponentSwitchBinding binding, @NonNull Preferences preferences, @NonNull Settings settings) {
+        binding.switchTitle.setText(R.string.advanced_lan_bypass);
+        binding.switchDescription.setText(R.string.advanced_lan_bypass_desc);
+
+        binding.switchControl.setChecked(settings.isLanBypassEnabled());
+        binding.switchControl.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            preferences.setLanBypassEnabled(isChecked);
+            // the routes are only set up again with the next interface
+            showReconnectionNeededWarningDialog();
+        });
+    }
+
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
 
-        String configFilePath = Preferences.configFile(inflater.getContext());
-        goPreferences = new io.netbird.gomobile.android.Preferences(configFilePath);
+        configWriter = ConfigWriter.getInstance(inflater.getContext());
 
         binding = FragmentAdvancedBinding.inflate(inflater, container, false);
         View root = binding.getRoot();
 
-        if (hasPreSharedKey(inflater.getContext())) {
+        if (hasPreSharedKey()) {
             binding.presharedKey.setText(hiddenKey);
         } else {
             binding.presharedKey.setText("");
@@ -87,12 +106,13 @@ public class AdvancedFragment extends Fragment {
                 return;
             }
 
-            setPreSharedKey(presharedKey, inflater.getContext());
+            setPreSharedKey(presharedKey);
         });
 
         // Enable trace logs
         Preferences preferences = new Preferences(inflater.getContext());
-        binding.switchTraceLog.setChecked(preferences.isTraceLogEnabled());
+        Settings settings = SettingsStore.getInstance(inflater.getContext()).get();
+        binding.switchTraceLog.setChecked(settings.isTraceLogEnabled());
 
         // Handle trace log switch toggle
         binding.switchTraceLog.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -108,13 +128,15 @@ public class AdvancedFragment extends Fragment {
             shareLog();
         });
 
+        showConnectTime();
+
         // Rosenpass settings
         try {
-            binding.switchRosenpass.setChecked(goPreferences.getRosenpassEnabled());
+            binding.switchRosenpass.setChecked(configWriter.read(c -> c.getRosenpassEnabled()));
             if (!binding.switchRosenpass.isChecked()) {
                 binding.switchRosenpassPermissive.setEnabled(false);
             } else {
-                binding.switchRosenpassPermissive.setChecked(goPreferences.getRosenpassPermissive());
+                binding.switchRosenpassPermissive.setChecked(configWriter.read(c -> c.getRosenpassPermissive()));
             }
 
         } catch (Exception e) {
@@ -125,35 +147,21 @@ public class AdvancedFragment extends Fragment {
         }
 
         binding.switchRosenpass.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            editConfig(c -> c.setRosenpassEnabled(isChecked), "Error committing Rosenpass settings");
             if (isChecked) {
-                goPreferences.setRosenpassEnabled(true);
                 binding.switchRosenpassPermissive.setEnabled(true);
-
             } else {
-                goPreferences.setRosenpassEnabled(false);
                 binding.switchRosenpassPermissive.setEnabled(false);
                 binding.switchRosenpassPermissive.setChecked(false);
             }
-
-            try {
-                goPreferences.commit();
-            } catch (Exception e) {
-                Log.e(LOGTAG, "Error committing Rosenpass settings", e);
-                Toast.makeText(inflater.getContext(), "Error: " + e.toString(), Toast.LENGTH_SHORT).show();
-            }
         });
 
         binding.switchRosenpassPermissive.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            goPreferences.setRosenpassPermissive(isChecked);
-            try {
-                goPreferences.commit();
-            } catch (Exception e) {
-                Log.e(LOGTAG, "Error committing Rosenpass settings", e);
-                Toast.makeText(inflater.getContext(), "Error: " + e, Toast.LENGTH_SHORT).show();
-            }
+            editConfig(c -> c.setRosenpassPermissive(isChecked), "Error committing Rosenpass settings");
         });
 
-        configureForceRelayConnectionSwitch(binding.layoutForceRelayConnection, preferences);
+        configureForceRelayConnectionSwitch(binding.layoutForceRelayConnection, preferences, settings);
+        configureLanBypassSwitch(binding.layoutLanBypass, preferences, settings);
 
         // Initialize engine config switches (your settings)
         initializeEngineConfigSwitches();
@@ -186,76 +194,55 @@ public class AdvancedFragment extends Fragment {
     private void initializeEngineConfigSwitches() {
         try {
             // Load current values from config
-            binding.switchDisableClientRoutes.setChecked(goPreferences.getDisableClientRoutes());
-            binding.switchDisableServerRoutes.setChecked(goPreferences.getDisableServerRoutes());
-            binding.switchDisableDns.setChecked(goPreferences.getDisableDNS());
-            binding.switchDisableFirewall.setChecked(goPreferences.getDisableFirewall());
-            binding.switchAllowSsh.setChecked(goPreferences.getServerSSHAllowed());
-            binding.switchBlockInbound.setChecked(goPreferences.getBlockInbound());
-
-            // Set up change listeners
-            binding.switchDisableClientRoutes.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setDisableClientRoutes(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set disable client routes", e);
-                }
-            });
-
-            binding.switchDisableServerRoutes.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setDisableServerRoutes(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set disable server routes", e);
-                }
-            });
-
-            binding.switchDisableDns.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setDisableDNS(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set disable DNS", e);
-                }
-            });
-
-            binding.switchDisableFirewall.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setDisableFirewall(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set disable firewall", e);
-                }
-            });
-
-            binding.switchAllowSsh.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setServerSSHAllowed(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set server SSH allowed", e);
-                }
-            });
-
-            binding.switchBlockInbound.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                try {
-                    goPreferences.setBlockInbound(isChecked);
-                    goPreferences.commit();
-                } catch (Exception e) {
-                    Log.e(LOGTAG, "Failed to set block inbound", e);
-                }
-            });
+            binding.switchDisableClientRoutes.setChecked(configWriter.read(c -> c.getDisableClientRoutes()));
+            binding.switchDisableServerRoutes.setChecked(configWriter.read(c -> c.getDisableServerRoutes()));
+            binding.switchDisableDns.setChecked(configWriter.read(c -> c.getDisableDNS()));
+            binding.switchDisableFirewall.setChecked(configWriter.read(c -> c.getDisableFirewall()));
+            binding.switchAllowSsh.setChecked(configWriter.read(c -> c.getServerSSHAllowed()));
+            binding.switchBlockInbound.setChecked(configWriter.read(c -> c.getBlockInbound()));
+
+            // Set up change listeners, the writer batches them into one disk write
+            binding.switchDisableClientRoutes.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setDisableClientRoutes(isChecked), "Failed to set disable client routes"));
+
+            binding.switchDisableServerRoutes.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setDisableServerRoutes(isChecked), "Failed to set disable server routes"));
+
+            binding.switchDisableDns.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setDisableDNS(isChecked), "Failed to set disable DNS"));
+
+            binding.switchDisableFirewall.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setDisableFirewall(isChecked), "Failed to set disable firewall"));
+
+            binding.switchAllowSsh.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setServerSSHAllowed(isChecked), "Failed to set server SSH allowed"));
+
+            binding.switchBlockInbound.setOnCheckedChangeListener((buttonView, isChecked) ->
+                    editConfig(c -> c.setBlockInbound(isChecked), "Failed to set block inbound"));
 
         } catch (Exception e) {
             Log.e(LOGTAG, "Failed to initialize engine config switches", e);
         }
     }
 
+    private void editConfig(Consumer<io.netbird.gomobile.android.Preferences> edit, String errorMessage) {
+        configWriter.edit(edit, error -> {
+            if (error == null) {
+                return;
+            }
+            Log.e(LOGTAG, errorMessage, error);
+            Context context = getContext();
+            if (context != null) {
+                Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // the user may reconnect right after leaving the screen
+        configWriter.flush();
         binding = null;
     }
 
@@ -272,29 +259,46 @@ public class AdvancedFragment extends Fragment {
         return key.matches(base64Pattern);
     }
 
-    private void setPreSharedKey(String key, Context context) {
-        String configFilePath = Preferences.configFile(context);
-        io.netbird.gomobile.android.Preferences preferences = new io.netbird.gomobile.android.Preferences(configFilePath);
-        try {
-            preferences.setPreSharedKey(key);
-            preferences.commit();
-            Toast.makeText(context, R.string.advanced_presharedkey_saved_success, Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            Log.e(LOGTAG, "Failed to save pre-shared key", e);
-            Toast.makeText(context, R.string.advanced_presharedkey_save_error + ": " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+    private void setPreSharedKey(String key) {
+        configWriter.edit(c -> c.setPreSharedKey(key), error -> {
+            Context context = getContext();
+            if (context == null) {
+                return;
+            }
+            if (error == null) {
+                Toast.makeText(context, R.string.advanced_presharedkey_saved_success, Toast.LENGTH_SHORT).show();
+            } else {
+                Log.e(LOGTAG, "Failed to save pre-shared key", error);
+                Toast.makeText(context, R.string.advanced_presharedkey_save_error + ": " + error.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+        configWriter.flush();
     }
 
-    private boolean hasPreSharedKey(Context context) {
-        String configFilePath = Preferences.configFile(context);
-        io.netbird.gomobile.android.Preferences preferences = new io.netbird.gomobile.android.Preferences(configFilePath);
+    private boolean hasPreSharedKey() {
         try {
-            return !preferences.getPreSharedKey().isEmpty();
+            return !configWriter.read(c -> c.getPreSharedKey()).isEmpty();
         } catch (Exception e) {
             return false;
         }
     }
 
+    private void showConnectTime() {
+        Activity activity = getActivity();
+        if (!(activity instanceof ServiceAccessor)) {
+            return;
+        }
+
+        List<ConnectTimeline> timelines = ((ServiceAccessor) activity).getConnectTimelines();
+        long p50 = ConnectTimeline.connectPercentile(timelines, 50);
+        long p95 = ConnectTimeline.connectPercentile(timelines, 95);
+        if (p50 < 0) {
+            binding.textConnectTime.setText(R.string.advanced_connect_time_none);
+            return;
+        }
+        binding.textConnectTime.setText(getString(R.string.advanced_connect_time, p50, p95, timelines.size()));
+    }
+
     private void shareLog() {
         Activity activity = getActivity();
         if (activity == null) {
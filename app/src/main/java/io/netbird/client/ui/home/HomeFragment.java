@@ -22,6 +22,7 @@ import io.netbird.client.ServiceAccessor;
 import io.netbird.client.StateListener;
 import io.netbird.client.StateListenerRegistry;
 import io.netbird.client.databinding.FragmentHomeBinding;
+import io.netbird.client.tool.RouteDelta;
 import io.netbird.client.ui.PreferenceUI;
 import io.netbird.gomobile.android.PeerInfo;
 import io.netbird.gomobile.android.PeerInfoArray;
@@ -167,7 +168,7 @@ public class HomeFragment extends Fragment implements StateListener {
     }
 
     @Override
-    public void routeChanged() {
+    public void routeChanged(RouteDelta delta) {
         if(binding == null) {
             return;
         }
@@ -9,7 +9,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import io.netbird.client.R;
 import io.netbird.client.databinding.ListItemResourceBinding;
@@ -47,6 +50,23 @@ public class NetworksAdapter extends RecyclerView.Adapter<NetworksAdapter.Resour
         return filteredResourcesList.size();
     }
 
+    public List<Resource> getResources() {
+        return resourcesList;
+    }
+
+    public void removeByAddress(Collection<String> addresses) {
+        Set<String> removed = new HashSet<>(addresses);
+        if (resourcesList.removeIf(res -> removed.contains(res.getAddress()))) {
+            applyFilters();
+        }
+    }
+
+    public void setResources(List<Resource> resources) {
+        resourcesList.clear();
+        resourcesList.addAll(resources);
+        applyFilters();
+    }
+
     public void filterBySearchQuery(String query) {
         filterQueryString = query;
         applyFilters();
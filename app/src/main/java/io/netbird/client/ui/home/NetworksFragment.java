@@ -1,6 +1,9 @@
 package io.netbird.client.ui.home;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.Editable;
@@ -15,14 +18,18 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import io.netbird.client.R;
 import io.netbird.client.ServiceAccessor;
 import io.netbird.client.databinding.FragmentNetworksBinding;
+import io.netbird.client.tool.NetworkChangeNotifier;
+import io.netbird.client.tool.RouteDelta;
 import io.netbird.gomobile.android.Network;
 import io.netbird.gomobile.android.NetworkArray;
 import io.netbird.gomobile.android.PeerInfo;
@@ -33,6 +40,7 @@ public class NetworksFragment extends Fragment {
    private FragmentNetworksBinding binding;
    private ServiceAccessor serviceAccessor;
    private RecyclerView resourcesListView;
+   private NetworksAdapter adapter;
 
    public static NetworksFragment newInstance() {
       return new NetworksFragment();
@@ -63,23 +71,22 @@ public class NetworksFragment extends Fragment {
       ZeroPeerView.setupLearnWhyClick(binding.zeroPeerLayout, requireContext());
 
       NetworkArray networks = serviceAccessor.getNetworks();
-      updateNetworkCount(networks);
+      List<Resource> resources = toResources(networks);
+      updateNetworkCount(resources);
 
-      ZeroPeerView.updateVisibility(binding.zeroPeerLayout, binding.networksList, networks.size() > 0);
+      ZeroPeerView.updateVisibility(binding.zeroPeerLayout, binding.networksList, !resources.isEmpty());
 
       resourcesListView = binding.networksRecyclerView;
       resourcesListView.setLayoutManager(new LinearLayoutManager(requireContext()));
 
-      ArrayList<Resource> resources = new ArrayList<>();
-      for( int i = 0; i < networks.size(); i++) {
-         Network network = networks.get(i);
-         Status status = Status.fromString(network.getStatus());
-         resources.add(new Resource(status, network.getName(), network.getNetwork(), network.getPeer()));
-      }
-
-      NetworksAdapter adapter = new NetworksAdapter(resources);
+      adapter = new NetworksAdapter(resources);
       resourcesListView.setAdapter(adapter);
 
+      LocalBroadcastManager.getInstance(requireContext()).registerReceiver(
+              routeChangeReceiver,
+              new IntentFilter(NetworkChangeNotifier.action)
+      );
+
       binding.searchView.clearFocus();
         binding.searchView.addTextChangedListener(new TextWatcher() {
            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -99,20 +106,61 @@ public class NetworksFragment extends Fragment {
       });
    }
 
-   private void updateNetworkCount(NetworkArray networks) {
-      TextView textPeersCount = binding.textOpenPanel;
-      int connected = 0;
-      for(int i = 0; i < networks.size(); i++) {
+   @Override
+   public void onDestroyView() {
+      super.onDestroyView();
+      LocalBroadcastManager.getInstance(requireContext()).unregisterReceiver(routeChangeReceiver);
+      adapter = null;
+      binding = null;
+   }
+
+   // a delta of removals only needs no fetch; otherwise the networks are fetched once and every
+   // entry is rebuilt, a route that did not change may still have changed its status
+   private void applyRouteDelta(RouteDelta delta) {
+      if (adapter == null || binding == null) {
+         return;
+      }
+
+      if (delta.getAdded().isEmpty() && delta.getUnchanged().isEmpty()) {
+         adapter.removeByAddress(delta.getRemoved());
+      } else {
+         adapter.setResources(toResources(serviceAccessor.getNetworks()));
+      }
+
+      List<Resource> resources = adapter.getResources();
+      updateNetworkCount(resources);
+      ZeroPeerView.updateVisibility(binding.zeroPeerLayout, binding.networksList, !resources.isEmpty());
+   }
+
+   private List<Resource> toResources(NetworkArray networks) {
+      List<Resource> resources = new ArrayList<>();
+      for( int i = 0; i < networks.size(); i++) {
          Network network = networks.get(i);
          Status status = Status.fromString(network.getStatus());
-         if (status.equals(Status.CONNECTED)) {
+         resources.add(new Resource(status, network.getName(), network.getNetwork(), network.getPeer()));
+      }
+      return resources;
+   }
+
+   private void updateNetworkCount(List<Resource> resources) {
+      TextView textPeersCount = binding.textOpenPanel;
+      int connected = 0;
+      for (Resource res : resources) {
+         if (res.getStatus().equals(Status.CONNECTED)) {
             connected++;
          }
       }
 
-      String text = getString(R.string.resources_connected, connected, networks.size());
+      String text = getString(R.string.resources_connected, connected, resources.size());
       textPeersCount.post(() ->
               textPeersCount.setText(Html.fromHtml(text, Html.FROM_HTML_MODE_LEGACY))
       );
    }
+
+   private final BroadcastReceiver routeChangeReceiver = new BroadcastReceiver() {
+      @Override
+      public void onReceive(Context context, Intent intent) {
+         applyRouteDelta(NetworkChangeNotifier.routeDelta(intent));
+      }
+   };
 }
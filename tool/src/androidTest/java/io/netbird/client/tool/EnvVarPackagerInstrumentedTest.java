@@ -14,7 +14,7 @@ public class EnvVarPackagerInstrumentedTest {
     @Test
     public void shouldReturnEnvironmentVariables() {
         var preferences = new Preferences(InstrumentationRegistry.getInstrumentation().getTargetContext());
-        var environmentVariables = EnvVarPackager.getEnvironmentVariables(preferences);
+        var environmentVariables = EnvVarPackager.getEnvironmentVariables(Settings.fromPreferences(preferences));
 
         Assert.assertNotNull(environmentVariables);
         var forceRelay = environmentVariables.get(Android.getEnvKeyNBForceRelay());
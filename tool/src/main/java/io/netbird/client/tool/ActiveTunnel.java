@@ -0,0 +1,69 @@
+package io.netbird.client.tool;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The interface that is up and the config it was built from. The engine closes the fd it was
+ * handed whenever it stops, also when it restarts within one run, so it only ever gets a duplicate.
+ * The descriptor kept here holds the interface up until it is replaced or the session ends.
+ */
+class ActiveTunnel {
+
+    interface Handle extends Closeable {
+        /**
+         * @return a new fd to the interface, owned by the caller
+         */
+        int dupFd() throws IOException;
+    }
+
+    private TunConfig config;
+    private Handle handle;
+
+    /**
+     * @return a new fd to the interface if it was built from an equal config, -1 if there is none
+     */
+    int reuse(TunConfig config) throws IOException {
+        if (handle == null || !config.equals(this.config)) {
+            return -1;
+        }
+        return handle.dupFd();
+    }
+
+    /**
+     * Takes over a newly established interface and closes the previous one.
+     *
+     * @return a new fd to the interface, owned by the caller
+     */
+    int replace(TunConfig config, Handle handle) throws IOException {
+        close();
+        this.config = config;
+        this.handle = handle;
+        return handle.dupFd();
+    }
+
+    /**
+     * @return null if no interface is up
+     */
+    TunConfig config() {
+        return config;
+    }
+
+    /**
+     * The interface was changed in place.
+     */
+    void updateConfig(TunConfig config) {
+        if (handle != null) {
+            this.config = config;
+        }
+    }
+
+    void close() throws IOException {
+        Handle previous = handle;
+        handle = null;
+        config = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.netbird.client.tool;
+
+/**
+ * Results of the in-place address changes the engine asked for. A failed change makes the engine
+ * configure the interface again, which drops open connections.
+ */
+public class AddressUpdateStats {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long failed = 0;
+
+    synchronized void applied(long millis) {
+        latency.record(millis);
+    }
+
+    synchronized void failed() {
+        failed++;
+    }
+
+    /**
+     * @return number of addresses changed without a new interface
+     */
+    public synchronized long appliedCount() {
+        return latency.count();
+    }
+
+    public synchronized long failedCount() {
+        return failed;
+    }
+
+    /**
+     * @return time the applied changes took
+     */
+    public synchronized LatencyHistogram latency() {
+        return latency.snapshot();
+    }
+}
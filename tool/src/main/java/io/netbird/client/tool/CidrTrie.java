@@ -0,0 +1,204 @@
+package io.netbird.client.tool;
+
+import java.util.Arrays;
+
+/**
+ * Binary trie over IP prefixes of one address family. Addresses are kept as two longs, the most
+ * significant bit first; IPv4 addresses use the upper 32 bits of {@code hi}. Nodes live in
+ * primitive arrays, there is no object per node.
+ */
+class CidrTrie {
+
+    interface PrefixConsumer {
+        void accept(long hi, long lo, int prefixLength);
+    }
+
+    // results of coverage()
+    static final int NOT_COVERED = 0;
+    static final int INSIDE_BROADER = 1;
+    static final int CONTAINS_PREFIXES = 2;
+
+    private static final int NONE = 0;
+    private static final int ROOT = 0;
+
+    private final int maxBits;
+    // child links of node n are at 2n and 2n+1, NONE means no child since the root is never a child
+    private int[] children = new int[64];
+    private boolean[] terminal = new boolean[32];
+    private int nodeCount = 1;
+
+    CidrTrie(int maxBits) {
+        if (maxBits != 32 && maxBits != 128) {
+            throw new IllegalArgumentException("unsupported address length: " + maxBits);
+        }
+        this.maxBits = maxBits;
+    }
+
+    int maxBits() {
+        return maxBits;
+    }
+
+    /**
+     * Adds a prefix, host bits are ignored. A prefix covered by one already in the trie is dropped,
+     * prefixes covered by the new one are removed.
+     */
+    void add(long hi, long lo, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > maxBits) {
+            throw new IllegalArgumentException("invalid prefix length: " + prefixLength);
+        }
+
+        int node = ROOT;
+        for (int depth = 0; depth < prefixLength; depth++) {
+            if (terminal[node]) {
+                return;
+            }
+            int slot = 2 * node + bit(hi, lo, depth);
+            int child = children[slot];
+            if (child == NONE) {
+                child = newNode();
+                children[slot] = child;
+            }
+            node = child;
+        }
+        terminal[node] = true;
+        children[2 * node] = NONE;
+        children[2 * node + 1] = NONE;
+    }
+
+    /**
+     * @return {@link #INSIDE_BROADER} if a shorter prefix in the trie contains the given one,
+     * {@link #CONTAINS_PREFIXES} if the given prefix equals or contains prefixes in the trie
+     */
+    int coverage(long hi, long lo, int prefixLength) {
+        int node = ROOT;
+        for (int depth = 0; depth < prefixLength; depth++) {
+            if (terminal[node]) {
+                return INSIDE_BROADER;
+            }
+            node = children[2 * node + bit(hi, lo, depth)];
+            if (node == NONE) {
+                return NOT_COVERED;
+            }
+        }
+        // remove() can leave empty paths behind
+        return hasPrefix(node) ? CONTAINS_PREFIXES : NOT_COVERED;
+    }
+
+    private boolean hasPrefix(int node) {
+        if (terminal[node]) {
+            return true;
+        }
+        int left = children[2 * node];
+        int right = children[2 * node + 1];
+        return (left != NONE && hasPrefix(left)) || (right != NONE && hasPrefix(right));
+    }
+
+    /**
+     * Removes the addresses of the given prefix from the trie. Prefixes inside it are dropped. A
+     * broader prefix that contains it is split into the smallest set of prefixes that covers
+     * the rest, unless {@code splitBroader} is false; it is kept as it is then.
+     *
+     * @return true if anything was removed
+     */
+    boolean remove(long hi, long lo, int prefixLength, boolean splitBroader) {
+        int node = ROOT;
+        int parentSlot = -1;
+        for (int depth = 0; depth < prefixLength; depth++) {
+            if (terminal[node]) {
+                if (!splitBroader) {
+                    return false;
+                }
+                // newNode() may grow the arrays, so the children are created before they are linked
+                int left = newNode();
+                int right = newNode();
+                terminal[left] = true;
+                terminal[right] = true;
+                terminal[node] = false;
+                children[2 * node] = left;
+                children[2 * node + 1] = right;
+            }
+            int slot = 2 * node + bit(hi, lo, depth);
+            if (children[slot] == NONE) {
+                return false;
+            }
+            parentSlot = slot;
+            node = children[slot];
+        }
+
+        if (parentSlot < 0) {
+            terminal[ROOT] = false;
+            children[0] = NONE;
+            children[1] = NONE;
+        } else {
+            children[parentSlot] = NONE;
+        }
+        return true;
+    }
+
+    /**
+     * Merges sibling prefixes into their parent until no pair is left, e.g. 10.0.0.0/25 and
+     * 10.0.0.128/25 become 10.0.0.0/24.
+     */
+    void aggregate() {
+        merge(ROOT);
+    }
+
+    private boolean merge(int node) {
+        if (terminal[node]) {
+            return true;
+        }
+        int left = children[2 * node];
+        int right = children[2 * node + 1];
+        boolean leftFull = left != NONE && merge(left);
+        boolean rightFull = right != NONE && merge(right);
+        if (leftFull && rightFull) {
+            terminal[node] = true;
+            children[2 * node] = NONE;
+            children[2 * node + 1] = NONE;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visits the prefixes in address order.
+     */
+    void forEach(PrefixConsumer consumer) {
+        visit(ROOT, 0, 0, 0, consumer);
+    }
+
+    private void visit(int node, long hi, long lo, int depth, PrefixConsumer consumer) {
+        if (terminal[node]) {
+            consumer.accept(hi, lo, depth);
+            return;
+        }
+        for (int b = 0; b < 2; b++) {
+            int child = children[2 * node + b];
+            if (child == NONE) {
+                continue;
+            }
+            if (b == 0) {
+                visit(child, hi, lo, depth + 1, consumer);
+            } else if (depth < 64) {
+                visit(child, hi | (1L << (63 - depth)), lo, depth + 1, consumer);
+            } else {
+                visit(child, hi, lo | (1L << (127 - depth)), depth + 1, consumer);
+            }
+        }
+    }
+
+    private static int bit(long hi, long lo, int depth) {
+        if (depth < 64) {
+            return (int) ((hi >>> (63 - depth)) & 1);
+        }
+        return (int) ((lo >>> (127 - depth)) & 1);
+    }
+
+    private int newNode() {
+        if (nodeCount == terminal.length) {
+            terminal = Arrays.copyOf(terminal, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 4);
+        }
+        return nodeCount++;
+    }
+}
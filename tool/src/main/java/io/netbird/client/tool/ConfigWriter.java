@@ -0,0 +1,155 @@
+package io.netbird.client.tool;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import io.netbird.gomobile.android.Preferences;
+
+/**
+ * Single owner of netbird.cfg edits made by the UI. Edits are applied to one in-memory config
+ * right away and written to disk in batches, off the main thread. The file is replaced
+ * atomically, the engine never reads a half written config. The engine and the server change
+ * screen write the file too, the in-memory config is loaded again once the file changed.
+ */
+public class ConfigWriter {
+
+    private static final String LOGTAG = "ConfigWriter";
+    static final long DEBOUNCE_MILLIS = 500;
+
+    public interface CommitListener {
+        /**
+         * Called on the main thread.
+         *
+         * @param error null if the edit has been written
+         */
+        void onCommitted(Exception error);
+    }
+
+    public interface Reader<T> {
+        T read(Preferences config) throws Exception;
+    }
+
+    private static ConfigWriter instance;
+
+    private final File configFile;
+    private final DebouncedWriter<Consumer<Preferences>> writer;
+    private final Object lock = new Object();
+    // the gomobile preferences keep set values in memory, a value set here hides a later change
+    // of the file until the config is loaded again
+    private Preferences config;
+    // submitted but not yet written, in submission order; applied again after a reload
+    private final List<Consumer<Preferences>> unwritten = new ArrayList<>();
+    // state of the file the in-memory config was loaded from
+    private long loadedModified;
+    private long loadedLength;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized ConfigWriter getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConfigWriter(new File(io.netbird.client.tool.Preferences.configFile(context.getApplicationContext())));
+        }
+        return instance;
+    }
+
+    private ConfigWriter(File configFile) {
+        this.configFile = configFile;
+        reload();
+        this.writer = new DebouncedWriter<>(
+                this::write,
+                Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "netbird-config-writer")),
+                DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Reads from the in-memory config, pending edits included.
+     */
+    public <T> T read(Reader<T> reader) throws Exception {
+        synchronized (lock) {
+            reloadIfChanged();
+            return reader.read(config);
+        }
+    }
+
+    /**
+     * @param edit     must only call setters, it is applied again when the batch is written
+     * @param listener may be null
+     */
+    public void edit(Consumer<Preferences> edit, CommitListener listener) {
+        synchronized (lock) {
+            reloadIfChanged();
+            edit.accept(config);
+            unwritten.add(edit);
+            // under the lock, so the batches are written in the order of unwritten
+            writer.submit(edit, listener == null ? null : error -> mainHandler.post(() -> listener.onCommitted(error)));
+        }
+    }
+
+    /**
+     * Writes pending edits now, e.g. before the engine is started with the new config.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    // the modification time alone may not change for two writes within its resolution
+    private void reloadIfChanged() {
+        if (configFile.lastModified() != loadedModified || configFile.length() != loadedLength) {
+            reload();
+        }
+    }
+
+    private void reload() {
+        loadedModified = configFile.lastModified();
+        loadedLength = configFile.length();
+        config = new Preferences(configFile.getPath());
+        for (Consumer<Preferences> edit : unwritten) {
+            edit.accept(config);
+        }
+    }
+
+    private void write(List<Consumer<Preferences>> edits) throws Exception {
+        try {
+            writeFile(edits);
+        } finally {
+            // a failed batch is dropped, the next reload shows what is on disk
+            synchronized (lock) {
+                unwritten.subList(0, edits.size()).clear();
+            }
+        }
+    }
+
+    // the Go side rewrites the file in place, so it commits to a copy that replaces the original
+    private void writeFile(List<Consumer<Preferences>> edits) throws Exception {
+        File tmp = new File(configFile.getPath() + ".tmp");
+        if (configFile.exists()) {
+            Files.copy(configFile.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(tmp.toPath());
+        }
+
+        Preferences staged = new Preferences(tmp.getPath());
+        for (Consumer<Preferences> edit : edits) {
+            edit.accept(staged);
+        }
+        try {
+            staged.commit();
+            Files.move(tmp.toPath(), configFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp.toPath());
+            Log.e(LOGTAG, "failed to write config", e);
+            throw e;
+        }
+        Log.d(LOGTAG, "config written, " + edits.size() + " edits");
+    }
+}
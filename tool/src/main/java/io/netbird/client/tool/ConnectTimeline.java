@@ -0,0 +1,106 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timestamps of the phases of a single engine connect attempt, relative to the start of the
+ * engine thread.
+ */
+public class ConnectTimeline {
+
+    public enum Phase {
+        THREAD_STARTED,
+        DNS_WATCH_CREATED,
+        ENV_PACKAGED,
+        CLIENT_RUN,
+        CONFIGURE_INTERFACE,
+        TUN_ESTABLISHED,
+        CONNECTED
+    }
+
+    private static final long NOT_REACHED = -1;
+
+    private final long startNanos;
+    private final long[] phaseNanos;
+
+    ConnectTimeline(long startNanos) {
+        this.startNanos = startNanos;
+        this.phaseNanos = new long[Phase.values().length];
+        Arrays.fill(phaseNanos, NOT_REACHED);
+    }
+
+    private ConnectTimeline(ConnectTimeline other) {
+        this.startNanos = other.startNanos;
+        this.phaseNanos = other.phaseNanos.clone();
+    }
+
+    /**
+     * Records the first time the phase is reached, later calls are ignored.
+     */
+    void mark(Phase phase, long nowNanos) {
+        if (phaseNanos[phase.ordinal()] == NOT_REACHED) {
+            phaseNanos[phase.ordinal()] = nowNanos;
+        }
+    }
+
+    ConnectTimeline copy() {
+        return new ConnectTimeline(this);
+    }
+
+    public boolean reached(Phase phase) {
+        return phaseNanos[phase.ordinal()] != NOT_REACHED;
+    }
+
+    /**
+     * @return milliseconds from the engine thread start to the phase, or -1 if not reached
+     */
+    public long phaseMillis(Phase phase) {
+        if (!reached(phase)) {
+            return NOT_REACHED;
+        }
+        return (phaseNanos[phase.ordinal()] - startNanos) / 1_000_000;
+    }
+
+    public boolean isConnected() {
+        return reached(Phase.CONNECTED);
+    }
+
+    public long connectMillis() {
+        return phaseMillis(Phase.CONNECTED);
+    }
+
+    /**
+     * Nearest-rank percentile of the connect time of the connected sessions.
+     *
+     * @return the percentile in milliseconds, or -1 if no session connected
+     */
+    public static long connectPercentile(List<ConnectTimeline> timelines, int percentile) {
+        List<Long> durations = new ArrayList<>();
+        for (ConnectTimeline t : timelines) {
+            if (t.isConnected()) {
+                durations.add(t.connectMillis());
+            }
+        }
+        if (durations.isEmpty()) {
+            return NOT_REACHED;
+        }
+        Collections.sort(durations);
+        int rank = (int) Math.ceil(percentile / 100.0 * durations.size());
+        return durations.get(Math.max(rank, 1) - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase p : Phase.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(p).append('=').append(phaseMillis(p));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the timelines of the last connect attempts in a fixed size ring buffer.
+ */
+class ConnectTimelineRecorder {
+
+    static final int DEFAULT_CAPACITY = 20;
+
+    private final ConnectTimeline[] ring;
+    private int next = 0;
+    private int count = 0;
+    private ConnectTimeline current;
+
+    ConnectTimelineRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ConnectTimelineRecorder(int capacity) {
+        ring = new ConnectTimeline[capacity];
+    }
+
+    /**
+     * Starts a new session and marks {@link ConnectTimeline.Phase#THREAD_STARTED}. The oldest
+     * session is dropped once the buffer is full.
+     */
+    synchronized void begin() {
+        current = new ConnectTimeline(System.nanoTime());
+        current.mark(ConnectTimeline.Phase.THREAD_STARTED, System.nanoTime());
+        ring[next] = current;
+        next = (next + 1) % ring.length;
+        count = Math.min(count + 1, ring.length);
+    }
+
+    synchronized void mark(ConnectTimeline.Phase phase) {
+        if (current == null) {
+            return;
+        }
+        current.mark(phase, System.nanoTime());
+    }
+
+    /**
+     * Closes the current session, phases reported after this are ignored.
+     */
+    synchronized void end() {
+        current = null;
+    }
+
+    /**
+     * @return copies of the recorded sessions, oldest first
+     */
+    synchronized List<ConnectTimeline> snapshot() {
+        List<ConnectTimeline> list = new ArrayList<>(count);
+        int first = (next - count + ring.length) % ring.length;
+        for (int i = 0; i < count; i++) {
+            list.add(ring[(first + i) % ring.length].copy());
+        }
+        return list;
+    }
+}
@@ -1,35 +1,64 @@
 package io.netbird.client.tool;
 
 import android.content.Context;
-import android.net.ConnectivityManager;
 import android.net.LinkProperties;
 import android.net.Network;
-import android.net.NetworkCapabilities;
-import android.net.NetworkRequest;
-import android.os.Build;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
-
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import io.netbird.client.tool.wg.InetAddresses;
+import io.netbird.client.tool.wg.ParseException;
 import io.netbird.gomobile.android.DNSList;
 
 
 public class DNSWatch {
     private static final String LOGTAG = "DNSWatch";
-    private final ConnectivityManager connectivityManager;
+    private static final long NETWORK_STATE_TIMEOUT_MS = 2_000;
+    // a handover fires several link property changes within about a second
+    private static final long DEBOUNCE_WINDOW_MS = 1_000;
+    // while the network's resolvers fail they are probed again, less often the longer it lasts
+    private static final long RECHECK_MIN_MS = 30_000;
+    private static final long RECHECK_MAX_MS = 5 * 60_000;
+    // shared with every other reader, nothing is requested from the system here
+    private final NetworkStateMonitor networkMonitor;
+    private final DnsChangeDebouncer debouncer;
+    private final SettingsStore settingsStore;
+    private final DnsProber prober;
+    private final ScheduledExecutorService probeScheduler;
+    private final NetworkDnsCache networkCache;
+    private ScheduledFuture<?> probeTask;
+    // owned by the probe thread
+    private long recheckDelayMillis = RECHECK_MIN_MS;
+    // parsed form of the fallback setting, re-parsed only when the setting changes
+    private String fallbackSetting;
+    private List<InetAddress> fallbacks = Collections.emptyList();
     private DNSList dnsServers;
     private boolean isPrivateDnsActive;
     private DNSChangeListener listener;
 
 
-    DNSWatch(Context context) {
-        connectivityManager = context.getSystemService(ConnectivityManager.class);
-        dnsServers  = readActiveDns();
+    /**
+     * @param probeScheduler runs the blocking resolver probes, apart from the debounced updates
+     */
+    DNSWatch(Context context, ScheduledExecutorService scheduler, ScheduledExecutorService probeScheduler,
+             DnsProber prober, NetworkDnsCache networkCache, DnsUpdateStats stats) {
+        networkMonitor = NetworkStateMonitor.getInstance(context);
+        settingsStore = SettingsStore.getInstance(context);
+        this.prober = prober;
+        this.probeScheduler = probeScheduler;
+        this.networkCache = networkCache;
+        List<InetAddress> servers = readActiveDns();
+        dnsServers = toDnsList(servers);
+        debouncer = new DnsChangeDebouncer(DnsChangeDebouncer.fingerprint(servers, isPrivateDnsActive),
+                scheduler, DEBOUNCE_WINDOW_MS, debouncerSink, stats);
     }
 
     public synchronized DNSList dnsServers() {
@@ -42,101 +71,174 @@ public class DNSWatch {
 
     synchronized public void setDNSChangeListener(DNSChangeListener listener) {
         this.listener = listener;
-        registerNetworkCallback();
+        networkMonitor.addListener(networkListener);
+        probeTask = probeScheduler.schedule(this::probe, 0, TimeUnit.MILLISECONDS);
     }
 
-    synchronized public void removeDNSChangeListener() {
-        // prevent "NetworkCallback was not registered" exception
-        if(this.listener == null) {
-            return;
+    public void removeDNSChangeListener() {
+        networkMonitor.removeListener(networkListener);
+        synchronized (this) {
+            if (probeTask != null) {
+                probeTask.cancel(false);
+                probeTask = null;
+            }
         }
-        try {
-            connectivityManager.unregisterNetworkCallback(networkCallback);
-        } catch (Exception e) {
-            Log.e(LOGTAG, "failed to unregister network callback", e);
+        // outside of the lock, a delivery holds the debouncer's lock while it takes this one
+        debouncer.cancel();
+        synchronized (this) {
+            this.listener = null;
         }
-        this.listener = null;
     }
 
-    private DNSList readActiveDns() {
-        Network activeNetwork = connectivityManager.getActiveNetwork();
-        if(activeNetwork == null) {
-            return new DNSList();
+    private List<InetAddress> readActiveDns() {
+        if (!networkMonitor.awaitInitialized(NETWORK_STATE_TIMEOUT_MS)) {
+            Log.w(LOGTAG, "network state not known after " + NETWORK_STATE_TIMEOUT_MS + " ms");
         }
-        LinkProperties props = connectivityManager.getLinkProperties(activeNetwork);
-        if(props == null) {
-            return new DNSList();
+        NetworkState state = networkMonitor.get();
+        isPrivateDnsActive = state.isPrivateDnsActive();
+        return withFallbacks(state.dnsServers());
+    }
+
+    private void onNewDNSList(NetworkState state) {
+        synchronized (this) {
+            if (listener == null) {
+                return;
+            }
+            isPrivateDnsActive = state.isPrivateDnsActive();
         }
+        debouncer.offer(withFallbacks(state.dnsServers()), state.isPrivateDnsActive());
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-            isPrivateDnsActive = props.isPrivateDnsActive();
+    private final DnsChangeDebouncer.Sink debouncerSink = new DnsChangeDebouncer.Sink() {
+        @Override
+        public void onChanged(List<InetAddress> servers) throws Exception {
+            onDebouncedChange(servers);
         }
 
-        List<InetAddress>  list = extendWithFallbackDNS(props.getDnsServers());
-        return toDnsList(list);
-    }
+        // the servers of the network are final now, they are the ones to start with next time
+        @Override
+        public void onSettled(List<InetAddress> servers) {
+            NetworkState state = networkMonitor.get();
+            Network network = state.network();
+            if (network == null || state.linkProperties() == null) {
+                return;
+            }
+            LinkProperties lp = state.linkProperties();
+            networkCache.put(network.getNetworkHandle(), state.fingerprint(),
+                    new NetworkDnsCache.Entry(lp.getDnsServers(), state.isPrivateDnsActive(), lp.getMtu(), state.transport()));
+        }
+    };
 
-    private void registerNetworkCallback() {
-        NetworkRequest networkRequest = new NetworkRequest.Builder()
-                .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
-                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
-                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
-                .addTransportType(NetworkCapabilities.TRANSPORT_CELLULAR)
-                .addTransportType(NetworkCapabilities.TRANSPORT_ETHERNET)
-                .build();
-        connectivityManager.requestNetwork(networkRequest, networkCallback);
+    private synchronized void onDebouncedChange(List<InetAddress> servers) throws Exception {
+        if (listener == null) {
+            return;
+        }
+        DNSList dnsList = toDnsList(servers);
+        try {
+            notifyDnsWatcher(dnsList);
+            dnsServers = dnsList;
+        } catch (Exception e) {
+            Log.e(LOGTAG, "failed to update dns servers", e);
+            throw e;
+        }
     }
 
-    private synchronized void onNewDNSList(LinkProperties linkProperties) {
-        List<InetAddress>  newDNSList = extendWithFallbackDNS(linkProperties.getDnsServers());
-
+    /**
+     * @return the servers of the network, fastest first by the last probes. The configured
+     * fallbacks go first only while the network's own resolvers fail or are all link-local, the
+     * network's resolvers may know names a public one does not. Link-local servers go last, the
+     * engine can not use them as the only upstream.
+     */
+    private List<InetAddress> withFallbacks(List<InetAddress> networkServers) {
+        List<InetAddress> own = new ArrayList<>();
+        List<InetAddress> linkLocal = new ArrayList<>();
+        for (InetAddress server : networkServers) {
+            (server.isLinkLocalAddress() ? linkLocal : own).add(server);
+        }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-            isPrivateDnsActive = linkProperties.isPrivateDnsActive();
+        List<InetAddress> servers = new ArrayList<>();
+        if (!networkServers.isEmpty() && ownResolversFailing(own)) {
+            List<InetAddress> fallbacks = new ArrayList<>(fallbacks());
+            fallbacks.removeAll(own);
+            servers.addAll(prober.rank(fallbacks));
         }
+        servers.addAll(prober.rank(own));
+        servers.addAll(linkLocal);
+        return servers;
+    }
 
-        if(newDNSList.size() != dnsServers.size()) {
-            DNSList dnsList = toDnsList(newDNSList);
-            try {
-                notifyDnsWatcher(dnsList);
-                dnsServers = dnsList;
-            } catch (Exception e) {
-               Log.e(LOGTAG, "failed to update dns servers", e);
+    private boolean ownResolversFailing(List<InetAddress> own) {
+        for (InetAddress server : own) {
+            if (!prober.isFailing(server)) {
+                return false;
             }
-            return;
         }
+        return true;
+    }
 
-        for(int i=0; i < newDNSList.size(); i++) {
+    private synchronized List<InetAddress> fallbacks() {
+        String setting = settingsStore.get().getFallbackDnsServers();
+        if (setting.equals(fallbackSetting)) {
+            return fallbacks;
+        }
+        List<InetAddress> parsed = new ArrayList<>();
+        for (String server : setting.split("[,;\\s]+")) {
+            if (server.isEmpty()) {
+                continue;
+            }
             try {
-                if (!newDNSList.get(i).getHostAddress().equals(dnsServers.get(i))) {
-                    DNSList dnsList = toDnsList(newDNSList);
-                    notifyDnsWatcher(dnsList);
-                    dnsServers = dnsList;
-                    return;
-                }
-            } catch (Exception e) {
-                Log.e(LOGTAG, "failed to update dns servers", e);
-                return;
+                parsed.add(InetAddresses.parse(server));
+            } catch (ParseException e) {
+                Log.e(LOGTAG, "ignored invalid fallback DNS server: " + server);
             }
         }
+        fallbackSetting = setting;
+        fallbacks = parsed;
+        return parsed;
     }
 
-    private List<InetAddress> extendWithFallbackDNS(List<InetAddress> dnsServers) {
-        List<InetAddress> modifiableDnsServers = new ArrayList<>(dnsServers);
-
-        if (dnsServers.isEmpty()) {
-            return modifiableDnsServers;
+    // probes the resolvers of the current network through that network, the fallbacks only while
+    // those fail, then offers the list again; the update only goes out if the first server changed.
+    // Runs after a network switch and, while the resolvers fail, until they recover.
+    private void probe() {
+        NetworkState state = networkMonitor.get();
+        Network network = state.network();
+        DnsProber.SocketBinder binder = socket -> {
+            if (network != null) {
+                network.bindSocket(socket);
+            }
+        };
+        List<InetAddress> own = new ArrayList<>();
+        for (InetAddress server : state.dnsServers()) {
+            if (!server.isLinkLocalAddress()) {
+                own.add(server);
+            }
+        }
+        prober.probeAll(own, binder);
+        boolean failing = !state.dnsServers().isEmpty() && ownResolversFailing(own);
+        if (failing) {
+            prober.probeAll(fallbacks(), binder);
+        }
+        if (state.linkProperties() != null) {
+            onNewDNSList(state);
         }
 
-        if (!dnsServers.get(0).isLinkLocalAddress()) {
-            return modifiableDnsServers;
+        if (!failing) {
+            recheckDelayMillis = RECHECK_MIN_MS;
+            return;
         }
+        scheduleProbe(recheckDelayMillis);
+        recheckDelayMillis = Math.min(recheckDelayMillis * 2, RECHECK_MAX_MS);
+    }
 
-        try {
-            InetAddress addr = InetAddress.getByName("1.1.1.1");
-            modifiableDnsServers.add(0, addr);
-        } catch (UnknownHostException e) {}
-        return modifiableDnsServers;
+    private synchronized void scheduleProbe(long delayMillis) {
+        if (listener == null) {
+            return;
+        }
+        if (probeTask != null) {
+            probeTask.cancel(false);
+        }
+        probeTask = probeScheduler.schedule(this::probe, delayMillis, TimeUnit.MILLISECONDS);
     }
 
     private void notifyDnsWatcher(DNSList dnsServers) throws Exception {
@@ -155,27 +257,45 @@ public class DNSWatch {
         return dnsList;
     }
 
-    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
-
-        @Override
-        public void onAvailable(@NonNull Network network) {
-            super.onAvailable(network);
+    // after a handover the engine needs the new network's resolvers to reach its servers, so they
+    // go out without the debounce: the settled ones of a network seen before, otherwise the
+    // first ones reported. The callbacks of a fresh join may still change them for a while.
+    private void offerNow(NetworkState state) {
+        synchronized (this) {
+            if (listener == null) {
+                return;
+            }
         }
-
-        @Override
-        public void onLost(@NonNull Network network) {
-            super.onLost(network);
+        NetworkDnsCache.Entry known = networkCache.get(state.network().getNetworkHandle(), state.fingerprint());
+        if (known == null) {
+            debouncer.offerNow(withFallbacks(state.dnsServers()), state.isPrivateDnsActive());
+            return;
         }
+        Log.d(LOGTAG, "known network, use its DNS servers: " + known.dnsServers());
+        debouncer.offerNow(withFallbacks(known.dnsServers()), known.isPrivateDnsActive());
+    }
 
-        @Override
-        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
-            super.onCapabilitiesChanged(network, networkCapabilities);
-        }
+    private final NetworkStateMonitor.Listener networkListener = this::onNetworkStateChanged;
 
-        @Override
-        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
-            Log.d(LOGTAG, "onLinkPropertiesChanged: "+linkProperties.getDnsServers());
-            onNewDNSList(linkProperties);
+    // called for the default non-VPN network only, a switch between networks included
+    private void onNetworkStateChanged(NetworkState previous, NetworkState current) {
+        LinkProperties linkProperties = current.linkProperties();
+        if (linkProperties == null) {
+            // keep the last servers while there is no network
+            return;
         }
-    };
+        Log.d(LOGTAG, "onLinkPropertiesChanged: " + linkProperties.getDnsServers());
+        boolean switched = !Objects.equals(previous.network(), current.network());
+        if (switched) {
+            offerNow(current);
+        }
+        onNewDNSList(current);
+        if (switched) {
+            // the measurements of the new network's own resolvers are missing or stale
+            probeScheduler.execute(() -> {
+                recheckDelayMillis = RECHECK_MIN_MS;
+                scheduleProbe(0);
+            });
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects edits and hands them to the writer as one batch. The batch is written one debounce
+ * window after its first edit, every caller of the batch is told the result of that single write.
+ */
+class DebouncedWriter<E> {
+
+    interface BatchWriter<E> {
+        void write(List<E> batch) throws Exception;
+    }
+
+    private final BatchWriter<E> batchWriter;
+    private final ScheduledExecutorService scheduler;
+    private final long debounceMillis;
+
+    private List<E> batch = new ArrayList<>();
+    private List<Consumer<Exception>> callbacks = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    /**
+     * @param scheduler must be single threaded, batches are written in order on it
+     */
+    DebouncedWriter(BatchWriter<E> batchWriter, ScheduledExecutorService scheduler, long debounceMillis) {
+        this.batchWriter = batchWriter;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @param callback called on the writer thread with null on success or the error of the write;
+     *                 may be null
+     */
+    synchronized void submit(E edit, Consumer<Exception> callback) {
+        batch.add(edit);
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+        schedule(debounceMillis);
+    }
+
+    /**
+     * Writes the pending batch without waiting for the rest of the debounce window.
+     */
+    synchronized void flush() {
+        schedule(0);
+    }
+
+    private void schedule(long delayMillis) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // a flush request does not wait for an already scheduled write
+        if (flushScheduled && delayMillis > 0) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::writeBatch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeBatch() {
+        List<E> edits;
+        List<Consumer<Exception>> done;
+        synchronized (this) {
+            flushScheduled = false;
+            if (batch.isEmpty()) {
+                return;
+            }
+            edits = batch;
+            done = callbacks;
+            batch = new ArrayList<>();
+            callbacks = new ArrayList<>();
+        }
+
+        Exception error = null;
+        try {
+            batchWriter.write(edits);
+        } catch (Exception e) {
+            error = e;
+        }
+        for (Consumer<Exception> callback : done) {
+            callback.accept(error);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.netbird.client.tool;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Coalesces the host DNS changes of a network handover into one update. A change is delivered
+ * once no other arrived for one window, or at the latest after {@link #MAX_WINDOWS} windows, and
+ * only if the set of servers or the private DNS state differs from the last delivered one.
+ */
+class DnsChangeDebouncer {
+
+    // a link that keeps flapping still gets an update after this many windows
+    static final int MAX_WINDOWS = 4;
+
+    interface Sink {
+        void onChanged(List<InetAddress> servers) throws Exception;
+
+        /**
+         * Called when the servers did not change for a window, whether or not they had to be
+         * delivered, unless the delivery failed.
+         */
+        default void onSettled(List<InetAddress> servers) {
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final Sink sink;
+    private final DnsUpdateStats stats;
+    private final LongSupplier clock;
+
+    private long deliveredFingerprint;
+    private List<InetAddress> pending;
+    private long pendingFingerprint;
+    private int pendingOffers;
+    private long firstOfferMillis;
+    private ScheduledFuture<?> flush;
+    // invalidates immediate deliveries that were queued before a cancel
+    private int generation;
+
+    /**
+     * @param initialFingerprint of the servers the engine was started with
+     */
+    DnsChangeDebouncer(long initialFingerprint, ScheduledExecutorService scheduler, long windowMillis,
+                       Sink sink, DnsUpdateStats stats) {
+        this(initialFingerprint, scheduler, windowMillis, sink, stats, System::currentTimeMillis);
+    }
+
+    DnsChangeDebouncer(long initialFingerprint, ScheduledExecutorService scheduler, long windowMillis,
+                       Sink sink, DnsUpdateStats stats, LongSupplier clock) {
+        this.deliveredFingerprint = initialFingerprint;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.sink = sink;
+        this.stats = stats;
+        this.clock = clock;
+    }
+
+    synchronized void offer(List<InetAddress> servers, boolean privateDnsActive) {
+        long now = clock.getAsLong();
+        if (pendingOffers == 0) {
+            firstOfferMillis = now;
+        }
+        pending = servers;
+        pendingFingerprint = fingerprint(servers, privateDnsActive);
+        pendingOffers++;
+
+        if (flush != null) {
+            flush.cancel(false);
+        }
+        long delay = Math.min(windowMillis, Math.max(0, firstOfferMillis + MAX_WINDOWS * windowMillis - now));
+        flush = scheduler.schedule(this::deliverPending, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers the servers without waiting for the window, e.g. the known ones of a network that
+     * was joined again. A pending change is not affected and is compared with these servers once
+     * its window is over.
+     */
+    synchronized void offerNow(List<InetAddress> servers, boolean privateDnsActive) {
+        long fingerprint = fingerprint(servers, privateDnsActive);
+        int queuedGeneration = generation;
+        scheduler.execute(() -> {
+            synchronized (this) {
+                if (queuedGeneration == generation) {
+                    deliver(servers, fingerprint, 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops a pending change, nothing is delivered after this returns.
+     */
+    synchronized void cancel() {
+        generation++;
+        if (flush != null) {
+            flush.cancel(false);
+            flush = null;
+        }
+        pending = null;
+        pendingOffers = 0;
+    }
+
+    private synchronized void deliverPending() {
+        if (pendingOffers == 0) {
+            return;
+        }
+        flush = null;
+        List<InetAddress> servers = pending;
+        int offers = pendingOffers;
+        pending = null;
+        pendingOffers = 0;
+
+        if (deliver(servers, pendingFingerprint, offers)) {
+            sink.onSettled(servers);
+        }
+    }
+
+    /**
+     * @return false if the sink failed
+     */
+    private boolean deliver(List<InetAddress> servers, long fingerprint, int offers) {
+        if (fingerprint == deliveredFingerprint) {
+            stats.suppressed(offers);
+            return true;
+        }
+        stats.suppressed(offers - 1);
+        try {
+            sink.onChanged(servers);
+            deliveredFingerprint = fingerprint;
+            stats.delivered();
+            return true;
+        } catch (Exception e) {
+            // not remembered as delivered, the next change is compared with the old servers
+            stats.failed();
+            return false;
+        }
+    }
+
+    /**
+     * Fingerprint of a server set and the private DNS state, computed without allocating host
+     * address strings. The order does not matter except for the first server, which the engine
+     * asks first and which the ranking may change on its own. A server listed twice counts twice.
+     */
+    static long fingerprint(List<InetAddress> servers, boolean privateDnsActive) {
+        long sum = 0;
+        long xor = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            long h = hash(servers.get(i));
+            sum += h;
+            xor ^= mix(h);
+        }
+        long head = servers.isEmpty() ? 0 : Long.rotateLeft(mix(hash(servers.get(0))), 17);
+        return mix(sum ^ Long.rotateLeft(xor, 29) ^ head) ^ (privateDnsActive ? 1 : 0) ^ ((long) servers.size() << 1);
+    }
+
+    private static long hash(InetAddress server) {
+        return mix(server.hashCode() ^ (server instanceof Inet6Address ? 1L << 32 : 0));
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,189 @@
+package io.netbird.client.tool;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures how fast and how reliably upstream resolvers answer, with a plain UDP query for the
+ * root name servers, and ranks them by that. Results are kept across networks; a resolver is
+ * identified by its address only.
+ */
+class DnsProber {
+
+    static final int DNS_PORT = 53;
+    private static final int RCODE_SERVFAIL = 2;
+    private static final int RCODE_REFUSED = 5;
+    // weight of the newest probe in the moving averages
+    private static final double ALPHA = 0.3;
+    // a resolver that fails half of the probes ranks behind one that is three times as slow
+    private static final double FAILURE_PENALTY = 4;
+    // a resolver that failed this share of the recent probes is considered down
+    private static final double FAILING_RATE = 0.5;
+
+    interface SocketBinder {
+        /**
+         * Binds the probe socket to the network the resolver belongs to, so the probe does not
+         * go through the tunnel.
+         */
+        void bind(DatagramSocket socket) throws IOException;
+    }
+
+    static final class Health {
+        private final double rttMillis;
+        private final double failureRate;
+        private final int probes;
+
+        Health(double rttMillis, double failureRate, int probes) {
+            this.rttMillis = rttMillis;
+            this.failureRate = failureRate;
+            this.probes = probes;
+        }
+
+        /**
+         * @return moving average of the successful probes, NaN if none succeeded yet
+         */
+        double rttMillis() {
+            return rttMillis;
+        }
+
+        double failureRate() {
+            return failureRate;
+        }
+
+        int probes() {
+            return probes;
+        }
+    }
+
+    private final int port;
+    private final int timeoutMillis;
+    private final Random random = new Random();
+    private final Map<InetAddress, Health> health = new ConcurrentHashMap<>();
+
+    DnsProber(int port, int timeoutMillis) {
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Probes each resolver once, one after the other. Blocks for up to the timeout per resolver.
+     */
+    void probeAll(Collection<InetAddress> servers, SocketBinder binder) {
+        for (InetAddress server : servers) {
+            probe(server, binder);
+        }
+    }
+
+    /**
+     * @return true if the resolver answered in time
+     */
+    boolean probe(InetAddress server, SocketBinder binder) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = query(server, binder);
+        } catch (IOException e) {
+            ok = false;
+        }
+        record(server, ok, (System.nanoTime() - start) / 1_000_000.0);
+        return ok;
+    }
+
+    Health health(InetAddress server) {
+        return health.get(server);
+    }
+
+    /**
+     * @return false for a resolver that was never probed
+     */
+    boolean isFailing(InetAddress server) {
+        Health h = health.get(server);
+        return h != null && h.failureRate >= FAILING_RATE;
+    }
+
+    /**
+     * @return the servers by ascending score; resolvers that were never probed rank like one that
+     * answers just before the timeout, equal scores keep the given order
+     */
+    List<InetAddress> rank(List<InetAddress> servers) {
+        List<InetAddress> ranked = new ArrayList<>(servers);
+        ranked.sort(Comparator.comparingDouble(this::score));
+        return ranked;
+    }
+
+    double score(InetAddress server) {
+        Health h = health.get(server);
+        if (h == null) {
+            return timeoutMillis;
+        }
+        double rtt = Double.isNaN(h.rttMillis) ? timeoutMillis : h.rttMillis;
+        return rtt * (1 + FAILURE_PENALTY * h.failureRate) + h.failureRate * timeoutMillis;
+    }
+
+    private void record(InetAddress server, boolean ok, double rttMillis) {
+        health.compute(server, (k, h) -> {
+            if (h == null) {
+                return new Health(ok ? rttMillis : Double.NaN, ok ? 0 : 1, 1);
+            }
+            double rtt = h.rttMillis;
+            if (ok) {
+                rtt = Double.isNaN(rtt) ? rttMillis : rtt + ALPHA * (rttMillis - rtt);
+            }
+            double failureRate = h.failureRate + ALPHA * ((ok ? 0 : 1) - h.failureRate);
+            return new Health(rtt, failureRate, h.probes + 1);
+        });
+    }
+
+    private boolean query(InetAddress server, SocketBinder binder) throws IOException {
+        int id = random.nextInt(0x10000);
+        byte[] query = {
+                (byte) (id >> 8), (byte) id,
+                0x01, 0x00, // recursion desired
+                0x00, 0x01, // one question
+                0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x00, // the root name
+                0x00, 0x02, // NS
+                0x00, 0x01, // IN
+        };
+        try (DatagramSocket socket = new DatagramSocket()) {
+            binder.bind(socket);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(new InetSocketAddress(server, port));
+            socket.send(new DatagramPacket(query, query.length));
+
+            byte[] buf = new byte[512];
+            DatagramPacket response = new DatagramPacket(buf, buf.length);
+            // a stray datagram must not end the probe early, the timeout still applies as a whole
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            while (true) {
+                socket.receive(response);
+                if (isReply(buf, response.getLength(), id)) {
+                    // NXDOMAIN and the like still prove the resolver works
+                    int rcode = buf[3] & 0x0f;
+                    return rcode != RCODE_SERVFAIL && rcode != RCODE_REFUSED;
+                }
+                int left = (int) ((deadline - System.nanoTime()) / 1_000_000);
+                if (left <= 0) {
+                    return false;
+                }
+                socket.setSoTimeout(left);
+            }
+        }
+    }
+
+    private static boolean isReply(byte[] buf, int length, int id) {
+        return length >= 12
+                && (buf[0] & 0xff) == (id >> 8) && (buf[1] & 0xff) == (id & 0xff)
+                && (buf[2] & 0x80) != 0;
+    }
+}
@@ -0,0 +1,45 @@
+package io.netbird.client.tool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the host DNS updates handed to the engine. Every update makes the engine
+ * reconfigure its resolver, so a high suppressed count is the debounce paying off.
+ */
+public class DnsUpdateStats {
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    void delivered() {
+        delivered.incrementAndGet();
+    }
+
+    void suppressed(long changes) {
+        suppressed.addAndGet(changes);
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * @return number of updates the engine accepted
+     */
+    public long deliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return number of network callbacks that did not lead to an update of their own, because
+     * they were coalesced or did not change the servers
+     */
+    public long suppressedCount() {
+        return suppressed.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+}
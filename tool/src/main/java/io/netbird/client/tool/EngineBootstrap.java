@@ -0,0 +1,101 @@
+package io.netbird.client.tool;
+
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Creates the {@link EngineRunner} on a background thread. The first touch of the gomobile
+ * library loads the native code and creates the Go client, which is too slow for the main thread.
+ */
+class EngineBootstrap {
+
+    private static final String LOGTAG = "EngineBootstrap";
+    private static final String THREAD_NAME = "netbird-bootstrap";
+
+    private final CompletableFuture<EngineRunner> ready = new CompletableFuture<>();
+    // chained actions keep the order in which they were requested
+    private CompletableFuture<EngineRunner> pending = ready;
+    // set when the service is destroyed, actions that have not run yet are skipped
+    private volatile boolean shutDown = false;
+
+    void start(VPNService vpnService) {
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                EngineRunner engineRunner = new EngineRunner(vpnService);
+                Log.d(LOGTAG, "engine ready in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                ready.complete(engineRunner);
+            } catch (Throwable e) {
+                Log.e(LOGTAG, "failed to create engine", e);
+                ready.completeExceptionally(e);
+            }
+        }, THREAD_NAME);
+        t.start();
+    }
+
+    /**
+     * Blocks until the engine has been created.
+     */
+    EngineRunner await() {
+        try {
+            return ready.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for engine", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("engine bootstrap failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the engine if it is already created, otherwise null. Never blocks.
+     */
+    EngineRunner getIfReady() {
+        if (!ready.isDone() || ready.isCompletedExceptionally()) {
+            return null;
+        }
+        return ready.getNow(null);
+    }
+
+    /**
+     * Runs the action once the engine is created, on the bootstrap thread or on the caller thread
+     * if the engine is already available. Actions run in the order they were submitted, none
+     * runs after {@link #shutdown(Consumer)}.
+     */
+    synchronized void whenReady(Consumer<EngineRunner> action) {
+        if (shutDown) {
+            return;
+        }
+        pending = pending.thenApply(engineRunner -> {
+            if (shutDown) {
+                return engineRunner;
+            }
+            try {
+                action.accept(engineRunner);
+            } catch (Exception e) {
+                Log.e(LOGTAG, "deferred engine action failed", e);
+            }
+            return engineRunner;
+        });
+    }
+
+    /**
+     * Skips the actions that have not run yet and runs the cleanup once the engine is created,
+     * right away if it already is. The engine may still be built after the service is gone, it
+     * must not be left running or holding its threads.
+     */
+    synchronized void shutdown(Consumer<EngineRunner> cleanup) {
+        shutDown = true;
+        pending = pending.thenApply(engineRunner -> {
+            try {
+                cleanup.accept(engineRunner);
+            } catch (Exception e) {
+                Log.e(LOGTAG, "engine cleanup failed", e);
+            }
+            return engineRunner;
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package io.netbird.client.tool;
+
+import android.os.Process;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the engine on a dedicated, named thread. Only one engine session can run at a time.
+ */
+class EngineExecutor {
+
+    private static final String THREAD_NAME = "netbird-engine";
+    // the Go runtime threads spawned while the engine starts inherit this priority
+    private static final int THREAD_PRIORITY = Process.THREAD_PRIORITY_FOREGROUND;
+
+    private Thread thread;
+    private boolean cancelled = false;
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+    /**
+     * Starts the task unless a previous one is still running.
+     *
+     * @param task       the engine session
+     * @param onFinished runs on the engine thread after the session is marked as finished
+     * @return false if a session is already running
+     */
+    synchronized boolean execute(Runnable task, Runnable onFinished) {
+        if (thread != null) {
+            return false;
+        }
+
+        cancelled = false;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        completion = done;
+        thread = new Thread(() -> {
+            Process.setThreadPriority(THREAD_PRIORITY);
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                try {
+                    onFinished.run();
+                } finally {
+                    done.complete(null);
+                }
+            }
+        }, THREAD_NAME);
+        thread.start();
+        return true;
+    }
+
+    synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called for the current session
+     */
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Marks the current session as cancelled. The session is expected to check
+     * {@link #isCancelled()} before it starts blocking work. Safe to call at any time, also when
+     * nothing runs.
+     *
+     * @return future that completes when the current session has finished
+     */
+    synchronized CompletableFuture<Void> cancel() {
+        if (thread != null) {
+            cancelled = true;
+        }
+        return completion;
+    }
+
+    /**
+     * @return future that completes when the current (or last) session has finished
+     */
+    synchronized CompletableFuture<Void> completion() {
+        return completion;
+    }
+}
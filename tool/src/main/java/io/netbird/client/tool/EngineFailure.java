@@ -0,0 +1,85 @@
+package io.netbird.client.tool;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.netbird.client.tool.wg.BackendException;
+
+/**
+ * Classification of an engine run that ended with an error.
+ */
+public enum EngineFailure {
+    // the management server rejected the peer, only the user can fix it
+    AUTH,
+    NETWORK_UNAVAILABLE,
+    TUN_CREATION,
+    UNKNOWN;
+
+    // the Go client reports errors as plain exceptions, the message is all we have; the gRPC status
+    // code is the most reliable part of it, wrapping text like "login failed" says nothing
+    private static final Pattern GRPC_CODE = Pattern.compile("code = (\\w+)");
+    // words like "login" or "token" also wrap network errors, only a rejection counts
+    private static final String[] AUTH_HINTS = {
+            "unauthenticated", "permissiondenied", "permission denied", "not authorized", "unauthorized"
+    };
+    private static final String[] NETWORK_HINTS = {
+            "unavailable", "unreachable", "no route to host", "connection refused", "connection reset",
+            "no such host", "i/o timeout", "deadline exceeded", "deadlineexceeded", "network is down"
+    };
+
+    /**
+     * @return false if retrying without user interaction can not succeed
+     */
+    public boolean isRecoverable() {
+        return this != AUTH;
+    }
+
+    static EngineFailure classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof BackendException
+                    && ((BackendException) t).getReason() == BackendException.Reason.TUN_CREATION_ERROR) {
+                return TUN_CREATION;
+            }
+        }
+
+        String msg = error == null ? null : error.getMessage();
+        if (msg == null) {
+            return UNKNOWN;
+        }
+        msg = msg.toLowerCase(Locale.ROOT);
+        if (msg.contains("tun_creation_error")) {
+            return TUN_CREATION;
+        }
+        Matcher code = GRPC_CODE.matcher(msg);
+        while (code.find()) {
+            switch (code.group(1)) {
+                case "unavailable":
+                case "deadlineexceeded":
+                    return NETWORK_UNAVAILABLE;
+                case "unauthenticated":
+                case "permissiondenied":
+                    return AUTH;
+                default:
+                    // a code that says nothing about retrying, the text may still do
+            }
+        }
+        // without a code a network error wins, giving up on a reachable server is the worse mistake
+        if (containsAny(msg, NETWORK_HINTS)) {
+            return NETWORK_UNAVAILABLE;
+        }
+        if (containsAny(msg, AUTH_HINTS)) {
+            return AUTH;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean containsAny(String msg, String[] hints) {
+        for (String hint : hints) {
+            if (msg.contains(hint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,10 +3,20 @@ package io.netbird.client.tool;
 
 import android.content.Context;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import io.netbird.gomobile.android.Android;
 import io.netbird.gomobile.android.Client;
@@ -19,15 +29,66 @@ import io.netbird.gomobile.android.URLOpener;
 class EngineRunner {
 
     private static final String LOGTAG = "EngineRunner";
+    private static final int DNS_PROBE_TIMEOUT_MS = 2_000;
+    // how long an unvalidated network may hold back retries before it is tried anyway
+    private static final long UNVALIDATED_GRACE_MS = 30_000;
+    // PeerInfo.getConnStatus of a peer with a working tunnel
+    private static final String PEER_CONNECTED = "Connected";
     private final Context context;
-    private boolean engineIsRunning = false;
-    Set<ServiceStateListener> serviceStateListeners = new HashSet<>();
+    private final VPNService vpnService;
+    private final SettingsStore settingsStore;
+    private final SettingsStore.Listener settingsListener = this::updateLogLevel;
+    private final EngineExecutor engineExecutor = new EngineExecutor();
+    private final EngineStateMachine stateMachine = new EngineStateMachine();
+    // every command and state transition runs on this thread, in the order it was posted; the Go
+    // client may still call back after release(), those callbacks are dropped
+    private final ExecutorService mailbox = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> new Thread(r, "netbird-engine-control"), new ThreadPoolExecutor.DiscardPolicy());
+    private final ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "netbird-engine-callbacks"));
+    private final ServiceStateListenerRegistry serviceStateListeners = new ServiceStateListenerRegistry(callbackExecutor);
+    private final ScheduledExecutorService peersScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "netbird-peers"));
     private final Client goClient;
+    private final IFace iFace;
+    private final NetworkChangeNotifier notifier;
+    private final ConnectTimelineRecorder timelineRecorder = new ConnectTimelineRecorder();
+    // guarded by connectionLock together with the last reported state, which is replayed to a
+    // listener set later, e.g. by a UI that binds while the engine is already connected
+    private ConnectionListener connectionListener;
+    private final Object connectionLock = new Object();
+    private Consumer<ConnectionListener> lastConnectionStatus;
+    private String lastFqdn;
+    private String lastIp;
+    private long lastPeerCount = -1;
+    // the peers list is a full JNI marshal of every peer, so all readers share one snapshot
+    private final SnapshotCache<PeerInfoArray> peersCache;
+    // a start request that arrived while the previous session was still stopping
+    private boolean restartPending = false;
+    private URLOpener pendingURLOpener;
+    private final ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor();
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "netbird-reconnect"));
+    // owned by the mailbox thread; the generation invalidates a retry that already left the scheduler
+    private ScheduledFuture<?> pendingReconnect;
+    private long reconnectGeneration = 0;
+    // owned by the mailbox thread; a retry that came due while the network was blocked
+    private boolean reconnectParked = false;
+    private final NetworkGate networkGate = new NetworkGate(UNVALIDATED_GRACE_MS, SystemClock::elapsedRealtime);
+    private final NetworkStateMonitor networkMonitor;
+    private final NetworkStateMonitor.Listener networkListener =
+            (previous, current) -> mailbox.execute(() -> onNetworkState(previous, current));
+    private final HandoverTracker handoverTracker = new HandoverTracker();
+    private final ScheduledExecutorService dnsScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "netbird-dns"));
+    private final DnsUpdateStats dnsUpdateStats = new DnsUpdateStats();
+    // the measurements outlive an engine session, the resolvers are mostly the same next time
+    private final DnsProber dnsProber = new DnsProber(DnsProber.DNS_PORT, DNS_PROBE_TIMEOUT_MS);
+    private final NetworkDnsCache networkDnsCache = new NetworkDnsCache(NetworkDnsCache.DEFAULT_CAPACITY);
+    private final ScheduledExecutorService dnsProbeScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "netbird-dns-probe"));
 
     public EngineRunner(VPNService vpnService) {
         context = vpnService;
-        NetworkChangeNotifier notifier = new NetworkChangeNotifier(vpnService);
-        IFace iFace = new IFace(vpnService);
+        this.vpnService = vpnService;
+        settingsStore = SettingsStore.getInstance(vpnService);
+        notifier = new NetworkChangeNotifier(vpnService);
+        iFace = new IFace(vpnService, timelineRecorder);
         goClient = Android.newClient(
                 Preferences.configFile(vpnService),
                 androidSDKVersion(),
@@ -37,34 +98,66 @@ class EngineRunner {
                 new IFaceDiscover(),
                 notifier);
 
-        updateLogLevel();
+        peersCache = new SnapshotCache<>(
+                goClient::peersList,
+                peersScheduler,
+                settingsStore.get().getPeersRefreshIntervalMillis(),
+                this::onPeersRefreshed);
+
+        goClient.setConnectionListener(connectionListenerProxy);
+        updateLogLevel(settingsStore.get());
+        settingsStore.addListener(settingsListener);
+
+        networkMonitor = NetworkStateMonitor.getInstance(vpnService);
+        networkMonitor.addListener(networkListener);
+        mailbox.execute(() -> onNetworkAvailability(networkMonitor.get().availability()));
     }
 
     public void run(URLOpener urlOpener) {
-        runClient(urlOpener);
+        mailbox.execute(() -> {
+            cancelReconnect();
+            runClient(urlOpener);
+        });
     }
 
     public void runWithoutAuth() {
-        runClient(null);
+        mailbox.execute(() -> {
+            cancelReconnect();
+            runClient(null);
+        });
     }
 
-    private synchronized void runClient(URLOpener urlOpener) {
+    private void runClient(URLOpener urlOpener) {
         Log.d(LOGTAG, "run engine");
-        if (engineIsRunning) {
+        EngineState state = stateMachine.state();
+        if (state == EngineState.STOPPING) {
+            Log.d(LOGTAG, "engine is stopping, start it again once it stopped");
+            restartPending = true;
+            pendingURLOpener = urlOpener;
+            return;
+        }
+        if (state.isActive()) {
             Log.e(LOGTAG, "engine already running");
             return;
         }
 
-        updateLogLevel();
-
-        engineIsRunning = true;
+        AtomicReference<EngineFailure> failure = new AtomicReference<>();
         Runnable r = () -> {
-            DNSWatch dnsWatch = new DNSWatch(context);
-            Preferences preferences = new Preferences(context);
-            var envList = EnvVarPackager.getEnvironmentVariables(preferences);
+            timelineRecorder.begin();
+            DNSWatch dnsWatch = new DNSWatch(context, dnsScheduler, dnsProbeScheduler, dnsProber, networkDnsCache, dnsUpdateStats);
+            timelineRecorder.mark(ConnectTimeline.Phase.DNS_WATCH_CREATED);
+            var envList = EnvVarPackager.getEnvironmentVariables(settingsStore.get());
+            timelineRecorder.mark(ConnectTimeline.Phase.ENV_PACKAGED);
 
             try {
-                notifyServiceStateListeners(true);
+                // stop() may arrive before the Go client runs, goClient.stop() would be a no-op then;
+                // one that lands after this check is caught by stopIfCancelled
+                if (engineExecutor.isCancelled()) {
+                    Log.d(LOGTAG, "engine start cancelled");
+                    return;
+                }
+                mailbox.execute(serviceStateListeners::notifyStarted);
+                timelineRecorder.mark(ConnectTimeline.Phase.CLIENT_RUN);
                 if(urlOpener == null) {
                     goClient.runWithoutLogin(dnsWatch.dnsServers(), () -> dnsWatch.setDNSChangeListener(this::changed), envList);
                 } else {
@@ -72,52 +165,323 @@ class EngineRunner {
                 }
             } catch (Exception e) {
                 Log.e(LOGTAG, "goClient error", e);
-                notifyError(e);
+                failure.set(EngineFailure.classify(e));
+                mailbox.execute(() -> serviceStateListeners.notifyError(e.getMessage()));
             } finally {
-                engineIsRunning = false;
+                timelineRecorder.end();
                 dnsWatch.removeDNSChangeListener();
-                notifyServiceStateListeners(false);
+                iFace.reset();
             }
-            Log.e(LOGTAG, "service stopped");
-
         };
-        new Thread(r).start();
+        Runnable onFinished = () -> mailbox.execute(() -> onEngineFinished(failure.get()));
+
+        if (!moveTo(EngineState.STARTING)) {
+            return;
+        }
+        if (!engineExecutor.execute(r, onFinished)) {
+            Log.e(LOGTAG, "engine thread still running");
+            moveTo(EngineState.FAILED);
+        }
+    }
+
+    /**
+     * @param failure null if the engine stopped without an error
+     */
+    private void onEngineFinished(EngineFailure failure) {
+        boolean stopRequested = stateMachine.state() == EngineState.STOPPING;
+        moveTo(failure != null ? EngineState.FAILED : EngineState.STOPPED);
+        synchronized (connectionLock) {
+            // the next session gets a new address
+            lastFqdn = null;
+            lastIp = null;
+        }
+        notifier.reset();
+        peersCache.invalidate();
+        serviceStateListeners.notifyStopped();
+        Log.e(LOGTAG, "service stopped");
+
+        if (restartPending) {
+            restartPending = false;
+            URLOpener pending = pendingURLOpener;
+            pendingURLOpener = null;
+            runClient(pending);
+            return;
+        }
+
+        if (failure != null && !stopRequested) {
+            scheduleReconnect(failure);
+        }
+    }
+
+    private void scheduleReconnect(EngineFailure failure) {
+        long delay = reconnectSupervisor.onFailure(failure);
+        if (delay < 0) {
+            Log.w(LOGTAG, "engine failed (" + failure + "), not retrying");
+            return;
+        }
+
+        if (networkGate.isBlocked()) {
+            parkReconnect();
+            return;
+        }
+        Log.i(LOGTAG, "engine failed (" + failure + "), reconnecting in " + delay + " ms");
+        long generation = ++reconnectGeneration;
+        pendingReconnect = reconnectScheduler.schedule(() -> mailbox.execute(() -> {
+            if (generation != reconnectGeneration) {
+                return;
+            }
+            pendingReconnect = null;
+            if (networkGate.isBlocked()) {
+                parkReconnect();
+                return;
+            }
+            retryClient();
+        }), delay, TimeUnit.MILLISECONDS);
+    }
+
+    // a retry never logs in interactively, only the user may open the SSO page; a session that
+    // still needs a login fails with an auth error and is not retried again
+    private void retryClient() {
+        // the error before dropped the foreground state, the service must not run the engine without it
+        vpnService.restoreForeground();
+        runClient(null);
+    }
+
+    // the management and signal servers are unreachable, trying only burns battery
+    private void parkReconnect() {
+        Log.i(LOGTAG, "network " + networkGate.availability() + ", reconnect when it validates");
+        reconnectParked = true;
+        reconnectSupervisor.onParked();
+    }
+
+    private void cancelReconnect() {
+        reconnectGeneration++;
+        reconnectParked = false;
+        if (pendingReconnect != null) {
+            pendingReconnect.cancel(false);
+            pendingReconnect = null;
+        }
+    }
+
+    private void onNetworkState(NetworkState previous, NetworkState current) {
+        onNetworkAvailability(current.availability());
+        if (current.network() != null && previous.network() != null
+                && !current.network().equals(previous.network())) {
+            onHandover(previous, current);
+        }
+    }
+
+    // the engine learns about the new path from its own timeouts; what the app can do is not
+    // to wait for anything it controls itself
+    private void onHandover(NetworkState previous, NetworkState current) {
+        Log.i(LOGTAG, "network handover, transport " + previous.transport() + " -> " + current.transport());
+        if (stateMachine.state().isActive()) {
+            handoverTracker.onHandover(SystemClock.elapsedRealtime());
+        }
+        if (pendingReconnect != null && !networkGate.isBlocked()) {
+            // the backoff was earned on the old network
+            Log.i(LOGTAG, "reconnecting now on the new network");
+            reconnectSupervisor.onNetworkRestored();
+            cancelReconnect();
+            retryClient();
+        }
+    }
+
+    private void onNetworkAvailability(NetworkAvailability availability) {
+        boolean wasBlocked = networkGate.isBlocked();
+        boolean blocked = networkGate.update(availability);
+        long grace = networkGate.graceRemainingMillis();
+        if (grace > 0 && !reconnectScheduler.isShutdown()) {
+            reconnectScheduler.schedule(() -> mailbox.execute(
+                    () -> onNetworkAvailability(networkMonitor.get().availability())), grace, TimeUnit.MILLISECONDS);
+        }
+        if (!wasBlocked || blocked) {
+            return;
+        }
+
+        reconnectSupervisor.onNetworkRestored();
+        if (!reconnectParked && pendingReconnect == null) {
+            return;
+        }
+        // a retry waiting out its backoff is also due now, the backoff was for the old network
+        Log.i(LOGTAG, "network " + availability + ", reconnecting now");
+        cancelReconnect();
+        retryClient();
+    }
+
+    private boolean moveTo(EngineState state) {
+        EngineState from = stateMachine.state();
+        if (!stateMachine.transition(state)) {
+            Log.w(LOGTAG, "illegal engine state transition: " + from + " -> " + state);
+            return false;
+        }
+        if (from != state) {
+            Log.d(LOGTAG, "engine state: " + from + " -> " + state);
+        }
+        return true;
     }
 
     private void changed(DNSList dnsServers) throws Exception {
         goClient.onUpdatedHostDNS(dnsServers);
     }
-    public synchronized boolean isRunning() {
-        return engineIsRunning;
+    /**
+     * @return true until the engine has completely stopped
+     */
+    public boolean isRunning() {
+        EngineState state = stateMachine.state();
+        return state.isActive() || state == EngineState.STOPPING;
     }
 
-    public synchronized void setConnectionListener(ConnectionListener listener) {
-        goClient.setConnectionListener(listener);
+    public EngineState state() {
+        return stateMachine.state();
     }
 
-    public synchronized void removeStatusListener() {
-        goClient.removeConnectionListener();
+    public EngineStateStats stateStats() {
+        return stateMachine.stats();
     }
 
-    public synchronized void addServiceStateListener(ServiceStateListener serviceStateListener) {
-        if (engineIsRunning) {
-            serviceStateListener.onStarted();
-        } else {
-            serviceStateListener.onStopped();
+    public ReconnectStats reconnectStats() {
+        return reconnectSupervisor.stats();
+    }
+
+    public DnsUpdateStats dnsUpdateStats() {
+        return dnsUpdateStats;
+    }
+
+    /**
+     * @return time from a network handover until peers connected again
+     */
+    public LatencyHistogram handoverLatencyHistogram() {
+        return handoverTracker.latency();
+    }
+
+    public HandoverStats handoverStats() {
+        return handoverTracker.stats(SystemClock.elapsedRealtime());
+    }
+
+    public LatencyHistogram dnsWaitHistogram() {
+        return iFace.dnsWaitHistogram();
+    }
+
+    public AddressUpdateStats addressUpdateStats() {
+        return iFace.addressUpdateStats();
+    }
+
+    public UnderlyingNetworkStats underlyingNetworkStats() {
+        return iFace.underlyingNetworkStats();
+    }
+
+    /**
+     * Sets the listener and tells it the last reported connection state, address and peer count.
+     */
+    public void setConnectionListener(ConnectionListener listener) {
+        synchronized (connectionLock) {
+            connectionListener = listener;
+            if (listener == null) {
+                return;
+            }
+            if (lastConnectionStatus != null) {
+                lastConnectionStatus.accept(listener);
+            }
+            if (lastIp != null) {
+                listener.onAddressChanged(lastFqdn, lastIp);
+            }
+            if (lastPeerCount >= 0) {
+                listener.onPeersListChanged(lastPeerCount);
+            }
+        }
+    }
+
+    public void removeStatusListener() {
+        synchronized (connectionLock) {
+            connectionListener = null;
+        }
+    }
+
+    private void notifyConnectionStatus(Consumer<ConnectionListener> status) {
+        synchronized (connectionLock) {
+            lastConnectionStatus = status;
+            if (connectionListener != null) {
+                status.accept(connectionListener);
+            }
         }
-        serviceStateListeners.add(serviceStateListener);
     }
 
-    public synchronized void removeServiceStateListener(ServiceStateListener serviceStateListener) {
+    public List<ConnectTimeline> connectTimelines() {
+        return timelineRecorder.snapshot();
+    }
+
+    public void addServiceStateListener(ServiceStateListener serviceStateListener) {
+        // read the state on the mailbox so the initial callback is ordered with the state changes
+        mailbox.execute(() -> serviceStateListeners.add(serviceStateListener, isRunning()));
+    }
+
+    public void removeServiceStateListener(ServiceStateListener serviceStateListener) {
         serviceStateListeners.remove(serviceStateListener);
     }
 
-    public synchronized void stop() {
-        goClient.stop();
+    /**
+     * Stops the engine. Safe to call at any time, also while the engine is still starting.
+     *
+     * @return future that completes when the engine thread has finished
+     */
+    public CompletableFuture<Void> stop() {
+        CompletableFuture<CompletableFuture<Void>> request = new CompletableFuture<>();
+        mailbox.execute(() -> {
+            restartPending = false;
+            pendingURLOpener = null;
+            cancelReconnect();
+            reconnectSupervisor.reset();
+            if (stateMachine.state().isActive()) {
+                moveTo(EngineState.STOPPING);
+            }
+            CompletableFuture<Void> completion = engineExecutor.cancel();
+            goClient.stop();
+            request.complete(completion);
+        });
+        // after release() the mailbox discards the request, the engine has finished by then
+        if (mailbox.isShutdown()) {
+            request.complete(engineExecutor.completion());
+        }
+        return request.thenCompose(completion -> completion);
+    }
+
+    /**
+     * Detaches the runner from process-wide resources and ends its threads once the engine
+     * stopped, called after {@link #stop()} when the service is destroyed.
+     */
+    public void release() {
+        settingsStore.removeListener(settingsListener);
+        networkMonitor.removeListener(networkListener);
+        iFace.release();
+        // queued behind the stop request, so the completion is the one of the stopping session
+        mailbox.execute(() -> engineExecutor.completion().thenRunAsync(this::shutdownExecutors, mailbox));
+    }
+
+    // runs on the mailbox after the engine finished, nothing is posted from the engine thread anymore
+    private void shutdownExecutors() {
+        reconnectScheduler.shutdownNow();
+        peersScheduler.shutdownNow();
+        dnsScheduler.shutdownNow();
+        dnsProbeScheduler.shutdownNow();
+        // pending listener callbacks are still delivered
+        callbackExecutor.shutdown();
+        mailbox.shutdown();
+        Log.d(LOGTAG, "engine threads released");
     }
 
     public PeerInfoArray peersInfo() {
-        return goClient.peersList();
+        return peersCache.get().value();
+    }
+
+    private void onPeersRefreshed(SnapshotCache.Snapshot<PeerInfoArray> snapshot) {
+        handoverTracker.onPeers(connectedPeers(snapshot.value()), SystemClock.elapsedRealtime());
+        synchronized (connectionLock) {
+            lastPeerCount = snapshot.value().size();
+            if (connectionListener != null) {
+                connectionListener.onPeersListChanged(lastPeerCount);
+            }
+        }
     }
 
     public NetworkArray networks() {
@@ -129,25 +493,18 @@ class EngineRunner {
         return networks;
     }
 
-    private synchronized void notifyError(Exception e) {
-        for (ServiceStateListener s : serviceStateListeners) {
-            s.onError(e.getMessage());
-        }
-    }
-
-    private synchronized void notifyServiceStateListeners(boolean engineIsRunning) {
-        for (ServiceStateListener s : serviceStateListeners) {
-            if (engineIsRunning) {
-                s.onStarted();
-            } else {
-                s.onStopped();
+    private static int connectedPeers(PeerInfoArray peers) {
+        int connected = 0;
+        for (long i = 0; i < peers.size(); i++) {
+            if (PEER_CONNECTED.equalsIgnoreCase(peers.get(i).getConnStatus())) {
+                connected++;
             }
         }
+        return connected;
     }
 
-    private void updateLogLevel() {
-        Preferences pref = new Preferences(context);
-        if (Version.isDebuggable(context) || pref.isTraceLogEnabled()) {
+    private void updateLogLevel(Settings settings) {
+        if (Version.isDebuggable(context) || settings.isTraceLogEnabled()) {
             goClient.setTraceLogLevel();
         } else {
             goClient.setInfoLogLevel();
@@ -157,4 +514,82 @@ class EngineRunner {
     private int androidSDKVersion() {
        return Build.VERSION.SDK_INT ;
     }
+
+    // without a stop request a disconnect means the Go client is about to reconnect; the engine
+    // thread finishing is what moves the state to STOPPED
+    private void onGoDisconnected() {
+        if (stateMachine.state().isActive()) {
+            moveTo(EngineState.CONNECTING);
+        }
+    }
+
+    // the Go client holds this single listener for the whole service lifetime, so the engine can
+    // observe the connection state even when no UI is bound
+    private final ConnectionListener connectionListenerProxy = new ConnectionListener() {
+        @Override
+        public void onAddressChanged(String fqdn, String ip) {
+            synchronized (connectionLock) {
+                lastFqdn = fqdn;
+                lastIp = ip;
+                if (connectionListener != null) {
+                    connectionListener.onAddressChanged(fqdn, ip);
+                }
+            }
+        }
+
+        @Override
+        public void onConnected() {
+            if (stopIfCancelled()) {
+                return;
+            }
+            timelineRecorder.mark(ConnectTimeline.Phase.CONNECTED);
+            handoverTracker.onEngineConnected(SystemClock.elapsedRealtime());
+            mailbox.execute(() -> {
+                moveTo(EngineState.CONNECTED);
+                reconnectSupervisor.onConnected();
+            });
+            notifyConnectionStatus(ConnectionListener::onConnected);
+        }
+
+        @Override
+        public void onConnecting() {
+            if (stopIfCancelled()) {
+                return;
+            }
+            mailbox.execute(() -> moveTo(EngineState.CONNECTING));
+            notifyConnectionStatus(ConnectionListener::onConnecting);
+        }
+
+        /**
+         * A stop() between the cancellation check and the start of the Go client reached a
+         * client that was not running yet and was lost. The client reports its first state
+         * once it runs, it is stopped again from there.
+         */
+        private boolean stopIfCancelled() {
+            if (!engineExecutor.isCancelled()) {
+                return false;
+            }
+            Log.d(LOGTAG, "engine started after it was stopped, stopping again");
+            goClient.stop();
+            return true;
+        }
+
+        @Override
+        public void onDisconnected() {
+            mailbox.execute(EngineRunner.this::onGoDisconnected);
+            notifyConnectionStatus(ConnectionListener::onDisconnected);
+        }
+
+        @Override
+        public void onDisconnecting() {
+            mailbox.execute(EngineRunner.this::onGoDisconnected);
+            notifyConnectionStatus(ConnectionListener::onDisconnecting);
+        }
+
+        // the UI is told once the coalesced refresh is done, so it reads the new snapshot
+        @Override
+        public void onPeersListChanged(long numberOfPeers) {
+            peersCache.invalidate();
+        }
+    };
 }
@@ -0,0 +1,20 @@
+package io.netbird.client.tool;
+
+/**
+ * Lifecycle of the engine, shared by the service and the UI.
+ */
+public enum EngineState {
+    STARTING,
+    CONNECTING,
+    CONNECTED,
+    STOPPING,
+    STOPPED,
+    FAILED;
+
+    /**
+     * @return true if the engine thread is expected to run in this state
+     */
+    public boolean isActive() {
+        return this == STARTING || this == CONNECTING || this == CONNECTED;
+    }
+}
@@ -0,0 +1,73 @@
+package io.netbird.client.tool;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates engine state transitions and records how long the engine stays in each state.
+ */
+class EngineStateMachine {
+
+    private static final Map<EngineState, Set<EngineState>> TRANSITIONS = new EnumMap<>(EngineState.class);
+
+    static {
+        TRANSITIONS.put(EngineState.STOPPED, EnumSet.of(EngineState.STARTING));
+        TRANSITIONS.put(EngineState.FAILED, EnumSet.of(EngineState.STARTING));
+        TRANSITIONS.put(EngineState.STARTING, EnumSet.of(EngineState.CONNECTING, EngineState.CONNECTED,
+                EngineState.STOPPING, EngineState.STOPPED, EngineState.FAILED));
+        TRANSITIONS.put(EngineState.CONNECTING, EnumSet.of(EngineState.CONNECTED,
+                EngineState.STOPPING, EngineState.STOPPED, EngineState.FAILED));
+        TRANSITIONS.put(EngineState.CONNECTED, EnumSet.of(EngineState.CONNECTING,
+                EngineState.STOPPING, EngineState.STOPPED, EngineState.FAILED));
+        TRANSITIONS.put(EngineState.STOPPING, EnumSet.of(EngineState.STOPPED, EngineState.FAILED));
+    }
+
+    private final int stateCount = EngineState.values().length;
+    private final long[] visits = new long[stateCount];
+    private final long[] totalMillis = new long[stateCount];
+    private final long[][] histogram = new long[stateCount][EngineStateStats.BUCKET_BOUNDS_MILLIS.length + 1];
+    private long illegalTransitions = 0;
+
+    private volatile EngineState state = EngineState.STOPPED;
+    private long enteredAtNanos = System.nanoTime();
+
+    EngineState state() {
+        return state;
+    }
+
+    /**
+     * Moves to the new state. A transition to the current state is a no-op.
+     *
+     * @return false if the transition is not allowed, the state is unchanged then
+     */
+    synchronized boolean transition(EngineState to) {
+        EngineState from = state;
+        if (from == to) {
+            return true;
+        }
+        if (!TRANSITIONS.get(from).contains(to)) {
+            illegalTransitions++;
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long dwellMillis = (now - enteredAtNanos) / 1_000_000;
+        visits[from.ordinal()]++;
+        totalMillis[from.ordinal()] += dwellMillis;
+        histogram[from.ordinal()][EngineStateStats.bucketOf(dwellMillis)]++;
+
+        enteredAtNanos = now;
+        state = to;
+        return true;
+    }
+
+    synchronized EngineStateStats stats() {
+        long[][] histogramCopy = new long[stateCount][];
+        for (int i = 0; i < stateCount; i++) {
+            histogramCopy[i] = histogram[i].clone();
+        }
+        return new EngineStateStats(visits.clone(), totalMillis.clone(), histogramCopy, illegalTransitions);
+    }
+}
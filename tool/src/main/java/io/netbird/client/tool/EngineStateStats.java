@@ -0,0 +1,56 @@
+package io.netbird.client.tool;
+
+/**
+ * Snapshot of the time the engine spent in each {@link EngineState}.
+ */
+public class EngineStateStats {
+
+    /**
+     * Upper bounds of the dwell-time histogram buckets in milliseconds. The last bucket counts
+     * everything above the last bound.
+     */
+    public static final long[] BUCKET_BOUNDS_MILLIS = {100, 1_000, 10_000, 60_000, 600_000, 3_600_000};
+
+    private final long[] visits;
+    private final long[] totalMillis;
+    private final long[][] histogram;
+    private final long illegalTransitions;
+
+    EngineStateStats(long[] visits, long[] totalMillis, long[][] histogram, long illegalTransitions) {
+        this.visits = visits;
+        this.totalMillis = totalMillis;
+        this.histogram = histogram;
+        this.illegalTransitions = illegalTransitions;
+    }
+
+    static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+
+    /**
+     * @return number of completed visits of the state
+     */
+    public long visits(EngineState state) {
+        return visits[state.ordinal()];
+    }
+
+    public long totalMillis(EngineState state) {
+        return totalMillis[state.ordinal()];
+    }
+
+    /**
+     * @return visit counts per bucket, see {@link #BUCKET_BOUNDS_MILLIS}
+     */
+    public long[] histogram(EngineState state) {
+        return histogram[state.ordinal()].clone();
+    }
+
+    public long illegalTransitions() {
+        return illegalTransitions;
+    }
+}
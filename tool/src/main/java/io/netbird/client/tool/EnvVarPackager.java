@@ -4,10 +4,10 @@ import io.netbird.gomobile.android.Android;
 import io.netbird.gomobile.android.EnvList;
 
 public class EnvVarPackager {
-    public static EnvList getEnvironmentVariables(Preferences preferences) {
+    public static EnvList getEnvironmentVariables(Settings settings) {
         var envList = new EnvList();
 
-        envList.put(Android.getEnvKeyNBForceRelay(), String.valueOf(preferences.isConnectionForceRelayed()));
+        envList.put(Android.getEnvKeyNBForceRelay(), String.valueOf(settings.isConnectionForceRelayed()));
 
         return envList;
     }
@@ -0,0 +1,44 @@
+package io.netbird.client.tool;
+
+/**
+ * Snapshot of the handover outcomes.
+ */
+public class HandoverStats {
+
+    private final long handovers;
+    private final long unaffected;
+    private final long unrecovered;
+    private final LatencyHistogram latency;
+
+    HandoverStats(long handovers, long unaffected, long unrecovered, LatencyHistogram latency) {
+        this.handovers = handovers;
+        this.unaffected = unaffected;
+        this.unrecovered = unrecovered;
+        this.latency = latency;
+    }
+
+    public long handovers() {
+        return handovers;
+    }
+
+    /**
+     * @return handovers after which no peer was seen to drop
+     */
+    public long unaffected() {
+        return unaffected;
+    }
+
+    /**
+     * @return handovers after which peers dropped and did not come back within two minutes
+     */
+    public long unrecovered() {
+        return unrecovered;
+    }
+
+    /**
+     * @return time from a handover until peers connected again, for the recovered ones
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+}
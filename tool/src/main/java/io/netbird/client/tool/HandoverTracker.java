@@ -0,0 +1,107 @@
+package io.netbird.client.tool;
+
+/**
+ * Measures how long the tunnel takes to recover after the underlying network changed. A
+ * handover is recovered when the engine connects again or more peers are connected than at the
+ * lowest point since the handover. Handovers that did not recover within
+ * {@link #MAX_RECOVERY_MILLIS} end without a measurement, counted apart by whether a peer dropped.
+ */
+class HandoverTracker {
+
+    static final long MAX_RECOVERY_MILLIS = 2 * 60_000;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private long handovers = 0;
+    private long unaffected = 0;
+    private long unrecovered = 0;
+    // -1 while no handover is being measured
+    private long handoverMillis = -1;
+    private int lowestConnectedPeers;
+    private int connectedPeersAtHandover;
+    private int connectedPeers = 0;
+
+    /**
+     * Starts a measurement, one that is still running is restarted.
+     */
+    synchronized void onHandover(long nowMillis) {
+        expire(nowMillis);
+        handovers++;
+        handoverMillis = nowMillis;
+        lowestConnectedPeers = connectedPeers;
+        connectedPeersAtHandover = connectedPeers;
+    }
+
+    synchronized void onEngineConnected(long nowMillis) {
+        if (expire(nowMillis)) {
+            return;
+        }
+        complete(nowMillis);
+    }
+
+    synchronized void onPeers(int connected, long nowMillis) {
+        connectedPeers = connected;
+        if (expire(nowMillis)) {
+            return;
+        }
+        if (connected < lowestConnectedPeers) {
+            lowestConnectedPeers = connected;
+        } else if (connected > lowestConnectedPeers) {
+            complete(nowMillis);
+        }
+    }
+
+    /**
+     * @return handovers whose recovery time was measured
+     */
+    synchronized LatencyHistogram latency() {
+        return latency.snapshot();
+    }
+
+    synchronized long handovers() {
+        return handovers;
+    }
+
+    synchronized HandoverStats stats(long nowMillis) {
+        expire(nowMillis);
+        return new HandoverStats(handovers, unaffected, unrecovered, latency.snapshot());
+    }
+
+    /**
+     * @return handovers after which no peer was seen to drop
+     */
+    synchronized long unaffected(long nowMillis) {
+        expire(nowMillis);
+        return unaffected;
+    }
+
+    /**
+     * @return handovers after which peers dropped and did not come back in time
+     */
+    synchronized long unrecovered(long nowMillis) {
+        expire(nowMillis);
+        return unrecovered;
+    }
+
+    private void complete(long nowMillis) {
+        latency.record(nowMillis - handoverMillis);
+        handoverMillis = -1;
+    }
+
+    // @return true if no measurement is running
+    private boolean expire(long nowMillis) {
+        if (handoverMillis < 0) {
+            return true;
+        }
+        if (nowMillis - handoverMillis > MAX_RECOVERY_MILLIS) {
+            if (lowestConnectedPeers < connectedPeersAtHandover) {
+                unrecovered++;
+            } else {
+                unaffected++;
+            }
+            handoverMillis = -1;
+            return true;
+        }
+        return false;
+    }
+}
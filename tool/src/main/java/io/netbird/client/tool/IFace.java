@@ -3,44 +3,114 @@ package io.netbird.client.tool;
 
 import android.annotation.SuppressLint;
 import android.content.pm.PackageManager;
+import android.net.IpPrefix;
 import android.net.VpnService;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.system.OsConstants;
 import android.util.Log;
 
-import java.util.LinkedList;
-import java.util.concurrent.CountDownLatch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import io.netbird.gomobile.android.TunAdapter;
 import io.netbird.client.tool.wg.BackendException;
+import io.netbird.client.tool.wg.InetAddresses;
 import io.netbird.client.tool.wg.InetNetwork;
+import io.netbird.client.tool.wg.ParseException;
 
 class IFace implements TunAdapter {
 
     private static final String LOGTAG = "IFace";
+    private static final long NETWORK_STATE_TIMEOUT_MS = 2_000;
     private final VPNService vpnService;
+    private final ConnectTimelineRecorder timelineRecorder;
+    // reused between calls, configureInterface is synchronized
+    private final RouteParser routeParser = new RouteParser();
+    private final RouteParser addressParser = new RouteParser();
+    private final RouteParser excludedParser = new RouteParser();
+    private final RouteParser lanParser = new RouteParser();
+    private final SettingsStore settingsStore;
+    private final SplitTunnelResolver splitTunnelResolver;
+    private final NetworkStateMonitor networkMonitor;
+    private final UnderlyingNetworkTracker underlyingNetworks;
+    // time configureInterface waited for the network state
+    private final LatencyHistogram dnsWaitHistogram = new LatencyHistogram();
+    private final AddressUpdateStats addressUpdateStats = new AddressUpdateStats();
+    // the interface that is up, re-establishing an identical one only drops connections
+    private final ActiveTunnel activeTunnel = new ActiveTunnel();
 
-    public IFace(VPNService vpnService) {
+    public IFace(VPNService vpnService, ConnectTimelineRecorder timelineRecorder) {
         this.vpnService = vpnService;
+        this.timelineRecorder = timelineRecorder;
+        this.settingsStore = SettingsStore.getInstance(vpnService);
+        this.splitTunnelResolver = new SplitTunnelResolver(vpnService, settingsStore);
+        this.networkMonitor = NetworkStateMonitor.getInstance(vpnService);
+        this.underlyingNetworks = new UnderlyingNetworkTracker(vpnService, networkMonitor);
     }
 
     @Override
-    public long configureInterface(String address, long mtu, String dns, String searchDomainsString, String routesString) throws Exception {
-        String[] searchDomains = toSearchDomains(searchDomainsString);
-        LinkedList<Route> routes = toRoutes(routesString);
+    public synchronized long configureInterface(String address, long mtu, String dns, String searchDomainsString, String routesString) throws Exception {
+        timelineRecorder.mark(ConnectTimeline.Phase.CONFIGURE_INTERFACE);
+        List<String> searchDomains = toSearchDomains(searchDomainsString);
+        RouteAggregator.Result routes = toRoutes(routesString);
 
-        InetNetwork addr = InetNetwork.parse(address);
+        TunConfig config = new TunConfig(toAddress(address), (int) mtu, resolveDns(dns), searchDomains,
+                routes.routes, routes.excluded, splitTunnelResolver.get(), followsNetworkMetering());
         try {
-            return createTun(addr.getAddress().getHostAddress(), addr.getMask(), (int) mtu, dns, searchDomains, routes);
+            int fd = activeTunnel.reuse(config);
+            if (fd >= 0) {
+                Log.d(LOGTAG, "interface config unchanged, keep the tunnel");
+                timelineRecorder.mark(ConnectTimeline.Phase.TUN_ESTABLISHED);
+                return fd;
+            }
+        } catch (IOException e) {
+            Log.w(LOGTAG, "failed to duplicate the tunnel fd, establish a new one", e);
+        }
+        TunConfig previous = activeTunnel.config();
+        if (previous != null) {
+            Log.i(LOGTAG, "interface config changed: " + config.changedFields(previous));
+        }
+
+        try {
+            return createTun(config);
         }catch (Exception e) {
             Log.e(LOGTAG, "failed to create tunnel", e);
             throw e;
         }
     }
 
+    LatencyHistogram dnsWaitHistogram() {
+        return dnsWaitHistogram.snapshot();
+    }
+
+    AddressUpdateStats addressUpdateStats() {
+        return addressUpdateStats;
+    }
+
+    UnderlyingNetworkStats underlyingNetworkStats() {
+        return underlyingNetworks.stats();
+    }
+
+    void release() {
+        splitTunnelResolver.release();
+        underlyingNetworks.release();
+    }
+
+    /**
+     * Closes the active interface, called once the engine stopped and closed its own fd.
+     */
+    synchronized void reset() {
+        try {
+            activeTunnel.close();
+        } catch (IOException e) {
+            Log.w(LOGTAG, "failed to close the tunnel", e);
+        }
+        underlyingNetworks.onClosed();
+    }
+
     @Override
     public boolean protectSocket(int fd) {
         vpnService.protect(fd);
@@ -49,115 +119,209 @@ class IFace implements TunAdapter {
         return true;
     }
 
-    private int createTun(String ip, int prefixLength, int mtu, String dns, String[] searchDomains, LinkedList<Route> routes) throws Exception {
+    private int createTun(TunConfig config) throws Exception {
         VpnService.Builder builder = vpnService.getBuilder();
-        builder.addAddress(ip, prefixLength);
+        builder.addAddress(config.address.addr, config.address.prefixLength);
         builder.allowFamily(OsConstants.AF_INET);
         builder.allowFamily(OsConstants.AF_INET6);
-        builder.setMtu(mtu);
-        prepareDnsSetting(builder, dns);
-        for (String sd : searchDomains) {
+        builder.setMtu(config.mtu);
+        if (config.dns != null) {
+            builder.addDnsServer(config.dns);
+        }
+        for (String sd : config.searchDomains) {
             builder.addSearchDomain(sd);
             Log.d(LOGTAG,"add search domain: "+ sd);
         }
 
-        for (Route r : routes) {
+        for (Route r : config.routes) {
             builder.addRoute(r.addr, r.prefixLength);
             Log.d(LOGTAG, "add route: "+r.addr+"/"+r.prefixLength);
         }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            for (Route r : config.excludedRoutes) {
+                builder.excludeRoute(new IpPrefix(InetAddresses.parse(r.addr), r.prefixLength));
+                Log.d(LOGTAG, "exclude route: " + r);
+            }
+        }
 
-        disallowApp(builder, "com.google.android.projection.gearhead");
-        disallowApp(builder, "com.google.android.apps.chromecast.app");
-        disallowApp(builder, "com.google.android.apps.messaging");
-        disallowApp(builder, "com.google.stadia.android");
+        applySplitTunnel(builder, config.splitTunnel);
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            builder.setMetered(false);
-        }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            vpnService.setUnderlyingNetworks(null);
+            builder.setMetered(config.metered);
         }
+        underlyingNetworks.applyTo(builder);
 
         builder.setBlocking(true);
-        try (final ParcelFileDescriptor tun = builder.establish()) {
-            if (tun == null) {
-                throw new BackendException(BackendException.Reason.TUN_CREATION_ERROR);
-            }
-            return tun.detachFd();
+        final ParcelFileDescriptor tun = builder.establish();
+        if (tun == null) {
+            throw new BackendException(BackendException.Reason.TUN_CREATION_ERROR);
         }
+        timelineRecorder.mark(ConnectTimeline.Phase.TUN_ESTABLISHED);
+        underlyingNetworks.onEstablished();
+        return activeTunnel.replace(config, new TunHandle(tun));
     }
 
-    private void prepareDnsSetting(VpnService.Builder builder, String dns) {
-        if(dns == null) {
-            return;
+    private static class TunHandle implements ActiveTunnel.Handle {
+        private final ParcelFileDescriptor tun;
+
+        TunHandle(ParcelFileDescriptor tun) {
+            this.tun = tun;
         }
 
-        if(dns.isEmpty()) {
-            return;
+        @Override
+        public int dupFd() throws IOException {
+            return tun.dup().detachFd();
         }
 
-        CountDownLatch latch = new CountDownLatch(1);
+        @Override
+        public void close() throws IOException {
+            tun.close();
+        }
+    }
 
-        // ConnectivityManager must to run on the main thread instead of a Go routine
-        new Handler(Looper.getMainLooper()).post(() -> {
-            DNSWatch dnsWatch = new DNSWatch(vpnService);
+    /**
+     * The metered state of the declared underlying network reaches the interface without a new
+     * establish(). Only an unmetered override is fixed when the interface is built, after a switch
+     * to another network type it is applied with the next interface setup.
+     *
+     * @return false if the interface is to be declared unmetered on the current network
+     */
+    private boolean followsNetworkMetering() {
+        NetworkType type = NetworkType.of(networkMonitor.get().transport());
+        return type == null || !settingsStore.get().getUnmeteredNetworkTypes().contains(type);
+    }
 
-            if (!dnsWatch.isPrivateDnsActive()) {
-                builder.addDnsServer(dns);
-            } else {
-                Log.d(LOGTAG, "ignore DNS because private dns is active");
-            }
+    /**
+     * @return the DNS server to set on the interface, null if there is none or private DNS is active
+     */
+    private String resolveDns(String dns) {
+        if(dns == null) {
+            return null;
+        }
 
-            latch.countDown();
-        });
+        if(dns.isEmpty()) {
+            return null;
+        }
 
-        try {
-            latch.await(); // Will block the current thread until countDown() is called
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        // the monitor is created with the engine, the wait is only taken on a very early start
+        long start = SystemClock.elapsedRealtime();
+        boolean initialized = networkMonitor.awaitInitialized(NETWORK_STATE_TIMEOUT_MS);
+        dnsWaitHistogram.record(SystemClock.elapsedRealtime() - start);
+        if (!initialized) {
+            Log.w(LOGTAG, "network state not known after " + NETWORK_STATE_TIMEOUT_MS + " ms, keep the DNS");
         }
+
+        if (networkMonitor.get().isPrivateDnsActive()) {
+            Log.d(LOGTAG, "ignore DNS because private dns is active");
+            return null;
+        }
+        return dns;
     }
 
-    private void disallowApp(VpnService.Builder builder, String packageName) {
-        try {
-            builder.addDisallowedApplication(packageName);
-        } catch (PackageManager.NameNotFoundException ignored) {
+    private void applySplitTunnel(VpnService.Builder builder, SplitTunnelResolver.Resolved splitTunnel) {
+        for (String packageName : splitTunnel.packages) {
+            try {
+                if (splitTunnel.mode == SplitTunnelMode.ALLOW) {
+                    builder.addAllowedApplication(packageName);
+                } else {
+                    builder.addDisallowedApplication(packageName);
+                }
+            } catch (PackageManager.NameNotFoundException e) {
+                // uninstalled since it was resolved
+                Log.d(LOGTAG, "split tunnel app not found: " + packageName);
+            }
         }
     }
 
+    /**
+     * Moves the active interface to a new address without establishing it again, so routes, DNS
+     * and open flows on the other addresses are kept. Throws if the address could not be changed
+     * in place, the engine then has to configure the interface again.
+     */
     @SuppressLint("DefaultLocale")
     @Override
-    public void updateAddr(String s) throws Exception {
+    public synchronized void updateAddr(String address) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        Route next = toAddress(address);
+        TunConfig activeConfig = activeTunnel.config();
+        if (activeConfig == null) {
+            addressUpdateStats.failed();
+            throw new Exception("no active interface to update");
+        }
+        Route previous = activeConfig.address;
+        if (next.equals(previous)) {
+            return;
+        }
+
+        // add before remove, the interface must never be left without an address
+        if (!vpnService.addAddress(InetAddresses.parse(next.addr), next.prefixLength)) {
+            Log.e(LOGTAG, "failed to add address " + next + " after " + (SystemClock.elapsedRealtime() - start) + " ms");
+            addressUpdateStats.failed();
+            throw new Exception("failed to add address: " + next);
+        }
+        if (!vpnService.removeAddress(InetAddresses.parse(previous.addr), previous.prefixLength)) {
+            Log.w(LOGTAG, "failed to remove previous address " + previous);
+        }
+        activeTunnel.updateConfig(activeConfig.withAddress(next));
+        long millis = SystemClock.elapsedRealtime() - start;
+        addressUpdateStats.applied(millis);
+        Log.i(LOGTAG, String.format("address changed from %s to %s in %d ms", previous, next, millis));
+    }
+
+    private Route toAddress(String address) throws ParseException {
+        if (addressParser.parse(address) != 1) {
+            throw new ParseException(InetNetwork.class, address, "Invalid interface address");
+        }
+        if (addressParser.v4Count() == 1) {
+            return new Route(RouteParser.formatV4(addressParser.v4Address(0)), addressParser.v4PrefixLength(0));
+        }
+        return new Route(RouteParser.formatV6(addressParser.v6High(0), addressParser.v6Low(0)), addressParser.v6PrefixLength(0));
     }
 
-    private String[] toSearchDomains(String searchDomains) {
-        LinkedList<String> list = new LinkedList<>();
+    private List<String> toSearchDomains(String searchDomains) {
+        List<String> list = new ArrayList<>();
         if(searchDomains == null) {
-            return new String[0];
+            return list;
         }
-        if(searchDomains.isEmpty()) {
-            return new String[0];
+        int start = 0;
+        while (start < searchDomains.length()) {
+            int end = searchDomains.indexOf(';', start);
+            if (end < 0) {
+                end = searchDomains.length();
+            }
+            if (end > start) {
+                list.add(searchDomains.substring(start, end));
+            }
+            start = end + 1;
         }
-        return searchDomains.split(";");
+        return list;
     }
 
-    private LinkedList<Route> toRoutes(String routesString) {
-        LinkedList<Route> routesList = new LinkedList<>();
-        if(routesString == null) {
-            return routesList;
+    // thousands of routes slow down establish() and fill the kernel routing table, so they are
+    // aggregated before they reach the builder. Excluded prefixes and, with LAN bypass, the local
+    // subnets are cut out of broader routes, or handed to excludeRoute where it exists. The local
+    // subnets are read here only, routes can not change without a new interface, which only the
+    // engine can ask for.
+    private RouteAggregator.Result toRoutes(String routesString) {
+        routeParser.parse(routesString);
+        if (routeParser.invalidCount() > 0) {
+            Log.e(LOGTAG, "ignored invalid routes: " + routeParser.invalidCount());
         }
-        if(routesString.isEmpty()) {
-            return routesList;
+
+        Settings settings = settingsStore.get();
+        excludedParser.parse(settings.getExcludedRoutes());
+        if (excludedParser.invalidCount() > 0) {
+            Log.e(LOGTAG, "ignored invalid excluded routes: " + excludedParser.invalidCount());
         }
-        String[] routes = routesString.split(";");
-        for(String route : routes) {
-            try {
-                Route r = new Route(route);
-                routesList.add(r);
-            } catch (Exception e) {
-                Log.e(LOGTAG, "invalid route: "+ route);
-            }
+        lanParser.parse(LocalNetworks.prefixes(vpnService));
+
+        RouteAggregator.Result result = RouteAggregator.aggregate(routeParser, excludedParser, lanParser,
+                settings.isLanBypassEnabled(), Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU);
+        for (Route lan : result.lanOverlaps) {
+            Log.w(LOGTAG, "pushed routes overlap the local network " + lan + ", its traffic goes through the tunnel");
         }
-        return routesList;
+        Log.d(LOGTAG, "aggregated " + (routeParser.v4Count() + routeParser.v6Count()) + " routes into "
+                + result.routes.size() + ", " + result.excluded.size() + " excluded");
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package io.netbird.client.tool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed bucket histogram of durations in milliseconds. Recording is lock-free, readers get a
+ * copy from {@link #snapshot()}.
+ */
+public class LatencyHistogram {
+
+    // upper bounds, inclusive; the last bucket takes everything above. The upper ones cover
+    // handover recoveries up to HandoverTracker.MAX_RECOVERY_MILLIS.
+    static final long[] BUCKET_BOUNDS_MILLIS = {0, 1, 5, 10, 50, 100, 500, 1_000, 5_000, 10_000, 30_000, 60_000, 120_000};
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        this(new long[BUCKET_BOUNDS_MILLIS.length + 1], 0);
+    }
+
+    private LatencyHistogram(long[] counts, long maxMillis) {
+        buckets = new AtomicLongArray(counts);
+        max = new AtomicLong(maxMillis);
+    }
+
+    void record(long millis) {
+        buckets.incrementAndGet(bucketOf(millis));
+        max.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * @return an immutable copy of the current counts
+     */
+    public LatencyHistogram snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new LatencyHistogram(counts, max.get());
+    }
+
+    public int bucketCount() {
+        return buckets.length();
+    }
+
+    /**
+     * @return inclusive upper bound of the bucket, Long.MAX_VALUE for the last one
+     */
+    public long bucketUpperBoundMillis(int bucket) {
+        return bucket < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[bucket] : Long.MAX_VALUE;
+    }
+
+    public long bucket(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long maxMillis() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket the percentile falls into, capped at the maximum, 0 if
+     * nothing was recorded
+     */
+    public long percentileMillis(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBoundMillis(i), maxMillis());
+            }
+        }
+        return maxMillis();
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " p50=" + percentileMillis(50) + "ms p99=" + percentileMillis(99)
+                + "ms max=" + maxMillis() + "ms";
+    }
+}
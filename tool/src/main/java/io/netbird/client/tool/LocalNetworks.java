@@ -0,0 +1,58 @@
+package io.netbird.client.tool;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import java.net.InetAddress;
+
+/**
+ * Subnets of the local networks the device is attached to, i.e. where printers, casting targets
+ * and cameras are reachable without the tunnel.
+ */
+class LocalNetworks {
+
+    private LocalNetworks() {
+    }
+
+    /**
+     * @return ';' separated prefixes of the Wi-Fi and Ethernet networks, link-local ones excluded
+     */
+    static String prefixes(Context context) {
+        ConnectivityManager cm = context.getSystemService(ConnectivityManager.class);
+        StringBuilder sb = new StringBuilder();
+        if (cm == null) {
+            return "";
+        }
+
+        for (Network network : cm.getAllNetworks()) {
+            NetworkCapabilities caps = cm.getNetworkCapabilities(network);
+            if (caps == null || caps.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+                continue;
+            }
+            // the subnet of a cellular link is the carrier's, not a local network
+            if (!caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                    && !caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+                continue;
+            }
+            LinkProperties lp = cm.getLinkProperties(network);
+            if (lp == null) {
+                continue;
+            }
+            for (LinkAddress linkAddress : lp.getLinkAddresses()) {
+                InetAddress addr = linkAddress.getAddress();
+                if (addr.isLinkLocalAddress() || addr.isLoopbackAddress()) {
+                    continue;
+                }
+                if (sb.length() > 0) {
+                    sb.append(';');
+                }
+                sb.append(addr.getHostAddress()).append('/').append(linkAddress.getPrefixLength());
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package io.netbird.client.tool;
+
+/**
+ * Whether the underlying network can reach the internet, as far as the system validated it.
+ */
+enum NetworkAvailability {
+    NONE,
+    CAPTIVE_PORTAL,
+    // connected, but the system's connectivity check did not succeed (yet)
+    UNVALIDATED,
+    VALIDATED
+}
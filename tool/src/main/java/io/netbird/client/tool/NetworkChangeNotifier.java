@@ -2,16 +2,30 @@ package io.netbird.client.tool;
 
 import android.content.Context;
 import android.content.Intent;
+import android.util.Log;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import io.netbird.gomobile.android.NetworkChangeListener;
 
 public class NetworkChangeNotifier implements NetworkChangeListener {
 
+    private static final String LOGTAG = "NetworkChangeNotifier";
+
     public static final String action = "action.NETWORK_CHANGED";
 
+    private static final String extraAdded = "routes.added";
+    private static final String extraRemoved = "routes.removed";
+    private static final String extraUnchanged = "routes.unchanged";
+
     private final Context context;
+    private Set<String> lastRoutes = new LinkedHashSet<>();
 
     NetworkChangeNotifier(Context context) {
         this.context = context;
@@ -19,7 +33,27 @@ public class NetworkChangeNotifier implements NetworkChangeListener {
 
     @Override
     public void onNetworkChanged(String routes) {
-        sendBroadcast();
+        RouteDelta delta;
+        synchronized (this) {
+            Set<String> current = RouteDelta.parse(routes);
+            delta = RouteDelta.compute(lastRoutes, current);
+            lastRoutes = current;
+        }
+
+        if (delta.isEmpty()) {
+            Log.d(LOGTAG, "routes unchanged");
+            return;
+        }
+        Log.d(LOGTAG, "routes changed: " + delta);
+        sendBroadcast(delta);
+    }
+
+    /**
+     * Forgets the routes of the session that ended, the first report of the next one is a delta
+     * against no routes.
+     */
+    synchronized void reset() {
+        lastRoutes = new LinkedHashSet<>();
     }
 
     @Override
@@ -27,9 +61,29 @@ public class NetworkChangeNotifier implements NetworkChangeListener {
 
     }
 
-    private void sendBroadcast() {
+    /**
+     * Reads the delta from an {@link #action} broadcast.
+     */
+    public static RouteDelta routeDelta(Intent intent) {
+        return new RouteDelta(
+                toList(intent.getStringArrayExtra(extraAdded)),
+                toList(intent.getStringArrayExtra(extraRemoved)),
+                toList(intent.getStringArrayExtra(extraUnchanged)));
+    }
+
+    private static List<String> toList(String[] array) {
+        if (array == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(array));
+    }
+
+    private void sendBroadcast(RouteDelta delta) {
         Intent intent = new Intent(action);
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        intent.putExtra(extraAdded, delta.getAdded().toArray(new String[0]));
+        intent.putExtra(extraRemoved, delta.getRemoved().toArray(new String[0]));
+        intent.putExtra(extraUnchanged, delta.getUnchanged().toArray(new String[0]));
         LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package io.netbird.client.tool;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last settled DNS and link state of the networks the device used, least recently used first out.
+ * An entry is found by the network handle while the network is up, and by its fingerprint when
+ * the device joins the same network again under a new handle.
+ */
+class NetworkDnsCache {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    static final class Entry {
+        private final List<InetAddress> dnsServers;
+        private final boolean privateDnsActive;
+        private final int mtu;
+        private final int transport;
+
+        /**
+         * @param transport one of the NetworkCapabilities transports, -1 if unknown
+         */
+        Entry(List<InetAddress> dnsServers, boolean privateDnsActive, int mtu, int transport) {
+            this.dnsServers = Collections.unmodifiableList(new ArrayList<>(dnsServers));
+            this.privateDnsActive = privateDnsActive;
+            this.mtu = mtu;
+            this.transport = transport;
+        }
+
+        List<InetAddress> dnsServers() {
+            return dnsServers;
+        }
+
+        boolean isPrivateDnsActive() {
+            return privateDnsActive;
+        }
+
+        /**
+         * @return 0 if the network did not report one
+         */
+        int mtu() {
+            return mtu;
+        }
+
+        int transport() {
+            return transport;
+        }
+    }
+
+    private final Map<Long, Entry> byHandle;
+    private final Map<String, Entry> byFingerprint;
+    private long hits;
+    private long misses;
+
+    NetworkDnsCache(int capacity) {
+        byHandle = lru(capacity);
+        byFingerprint = lru(capacity);
+    }
+
+    /**
+     * @param fingerprint null if the network can not be recognized again
+     */
+    synchronized void put(long networkHandle, String fingerprint, Entry entry) {
+        byHandle.put(networkHandle, entry);
+        if (fingerprint != null) {
+            byFingerprint.put(fingerprint, entry);
+        }
+    }
+
+    /**
+     * @return null if neither the handle nor the fingerprint is known
+     */
+    synchronized Entry get(long networkHandle, String fingerprint) {
+        Entry entry = byHandle.get(networkHandle);
+        // also read when the handle matched, so both orders see the network as recently used
+        Entry byPrint = fingerprint == null ? null : byFingerprint.get(fingerprint);
+        if (entry == null) {
+            entry = byPrint;
+        }
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    private static <K> Map<K, Entry> lru(int capacity) {
+        return new LinkedHashMap<K, Entry>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, NetworkDnsCache.Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
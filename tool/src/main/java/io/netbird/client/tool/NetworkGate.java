@@ -0,0 +1,62 @@
+package io.netbird.client.tool;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether engine connection attempts are worth making on the current network. Without a
+ * network and behind a captive portal they are held back until the network validates. An
+ * unvalidated network is given the benefit of the doubt after a grace period, some networks
+ * block the system's connectivity check but still reach the management server.
+ */
+class NetworkGate {
+
+    private final long unvalidatedGraceMillis;
+    private final LongSupplier clock;
+
+    private NetworkAvailability availability = NetworkAvailability.NONE;
+    private long unvalidatedSinceMillis = -1;
+
+    NetworkGate(long unvalidatedGraceMillis, LongSupplier clock) {
+        this.unvalidatedGraceMillis = unvalidatedGraceMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return true if attempts should be held back now
+     */
+    boolean update(NetworkAvailability availability) {
+        if (availability != NetworkAvailability.UNVALIDATED) {
+            unvalidatedSinceMillis = -1;
+        } else if (unvalidatedSinceMillis < 0) {
+            unvalidatedSinceMillis = clock.getAsLong();
+        }
+        this.availability = availability;
+        return isBlocked();
+    }
+
+    boolean isBlocked() {
+        switch (availability) {
+            case NONE:
+            case CAPTIVE_PORTAL:
+                return true;
+            case UNVALIDATED:
+                return graceRemainingMillis() > 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return time until an unvalidated network is tried anyway, 0 if the gate does not wait for it
+     */
+    long graceRemainingMillis() {
+        if (availability != NetworkAvailability.UNVALIDATED) {
+            return 0;
+        }
+        return Math.max(0, unvalidatedSinceMillis + unvalidatedGraceMillis - clock.getAsLong());
+    }
+
+    NetworkAvailability availability() {
+        return availability;
+    }
+}
@@ -0,0 +1,168 @@
+package io.netbird.client.tool;
+
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.RouteInfo;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable view of the underlying, non-VPN network the device uses, as last reported by the
+ * system callbacks.
+ */
+class NetworkState {
+
+    static final NetworkState NONE = new NetworkState(null, null, null);
+
+    private static final int[] TRANSPORTS = {
+            NetworkCapabilities.TRANSPORT_CELLULAR,
+            NetworkCapabilities.TRANSPORT_WIFI,
+            NetworkCapabilities.TRANSPORT_ETHERNET,
+    };
+
+    private final Network network;
+    private final LinkProperties linkProperties;
+    private final NetworkCapabilities capabilities;
+    private final boolean privateDnsActive;
+
+    NetworkState(@Nullable Network network, @Nullable LinkProperties linkProperties,
+                 @Nullable NetworkCapabilities capabilities) {
+        this.network = network;
+        this.linkProperties = linkProperties;
+        this.capabilities = capabilities;
+        this.privateDnsActive = linkProperties != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                && linkProperties.isPrivateDnsActive();
+    }
+
+    /**
+     * @return null if the device has no usable network
+     */
+    @Nullable
+    Network network() {
+        return network;
+    }
+
+    @Nullable
+    LinkProperties linkProperties() {
+        return linkProperties;
+    }
+
+    @Nullable
+    NetworkCapabilities capabilities() {
+        return capabilities;
+    }
+
+    boolean isPrivateDnsActive() {
+        return privateDnsActive;
+    }
+
+    NetworkAvailability availability() {
+        if (network == null || capabilities == null) {
+            return NetworkAvailability.NONE;
+        }
+        if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_CAPTIVE_PORTAL)) {
+            return NetworkAvailability.CAPTIVE_PORTAL;
+        }
+        if (!capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+            return NetworkAvailability.UNVALIDATED;
+        }
+        return NetworkAvailability.VALIDATED;
+    }
+
+    /**
+     * @return the first of cellular, Wi-Fi, Ethernet the network uses, -1 if unknown
+     */
+    int transport() {
+        if (capabilities == null) {
+            return -1;
+        }
+        for (int transport : TRANSPORTS) {
+            if (capabilities.hasTransport(transport)) {
+                return transport;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Identifies the same network again after it was lost and joined anew under another handle,
+     * from what stays the same between two joins: transport, interface, IPv4 subnets, default
+     * gateway and search domains.
+     *
+     * @return null without link properties
+     */
+    @Nullable
+    String fingerprint() {
+        if (linkProperties == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(transport()).append('|').append(linkProperties.getInterfaceName()).append('|');
+        List<String> subnets = new ArrayList<>();
+        for (LinkAddress la : linkProperties.getLinkAddresses()) {
+            byte[] addr = la.getAddress().getAddress();
+            if (addr.length != 4) {
+                // IPv6 privacy addresses rotate, their prefix adds nothing the gateway does not
+                continue;
+            }
+            int bits = la.getPrefixLength();
+            for (int i = 0; i < addr.length; i++) {
+                int keep = Math.max(0, Math.min(8, bits - 8 * i));
+                addr[i] &= (byte) (0xff << (8 - keep));
+            }
+            subnets.add((addr[0] & 0xff) + "." + (addr[1] & 0xff) + "." + (addr[2] & 0xff) + "." + (addr[3] & 0xff) + "/" + bits);
+        }
+        Collections.sort(subnets);
+        sb.append(subnets).append('|');
+        for (RouteInfo route : linkProperties.getRoutes()) {
+            if (route.isDefaultRoute() && route.hasGateway()) {
+                sb.append(route.getGateway().getHostAddress()).append(',');
+            }
+        }
+        sb.append('|').append(linkProperties.getDomains());
+        return sb.toString();
+    }
+
+    List<InetAddress> dnsServers() {
+        if (linkProperties == null) {
+            return Collections.emptyList();
+        }
+        return linkProperties.getDnsServers();
+    }
+
+    /**
+     * Compares only what the listeners act on. The full capabilities change with every signal
+     * strength or bandwidth estimate update.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NetworkState that = (NetworkState) o;
+        return Objects.equals(network, that.network)
+                && Objects.equals(linkProperties, that.linkProperties)
+                && availability() == that.availability()
+                && transport() == that.transport();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(network, linkProperties, availability(), transport());
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkState{network=" + network + ", " + availability() + ", privateDns=" + privateDnsActive
+                + ", dns=" + dnsServers() + "}";
+    }
+}
@@ -0,0 +1,242 @@
+package io.netbird.client.tool;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide tracker of the underlying network. The system callbacks run on a dedicated
+ * thread and publish a {@link NetworkState}, readers on any thread get it without a main thread
+ * hop or a binder call.
+ */
+class NetworkStateMonitor {
+
+    private static final String LOGTAG = "NetworkStateMonitor";
+
+    interface Listener {
+        /**
+         * Called on the monitor thread when the selected network or its properties changed.
+         */
+        void onNetworkStateChanged(NetworkState previous, NetworkState current);
+    }
+
+    private static NetworkStateMonitor instance;
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+    private final CountDownLatch initialized = new CountDownLatch(1);
+    // owned by the monitor thread
+    private final Map<Network, Tracked> networks = new HashMap<>();
+    private Network bestMatch;
+    private volatile NetworkState current = NetworkState.NONE;
+
+    private static class Tracked {
+        NetworkCapabilities capabilities;
+        LinkProperties linkProperties;
+    }
+
+    static synchronized NetworkStateMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new NetworkStateMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NetworkStateMonitor(Context context) {
+        connectivityManager = context.getSystemService(ConnectivityManager.class);
+        HandlerThread thread = new HandlerThread("netbird-network");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+
+        // queued before the callback is registered, so it runs before the first callback
+        handler.post(this::readInitialState);
+        // a listen request only observes, it never asks the system to bring a network up
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_VPN)
+                .build();
+        connectivityManager.registerNetworkCallback(request, networkCallback, handler);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            connectivityManager.registerBestMatchingNetworkCallback(request, bestMatchCallback, handler);
+        }
+    }
+
+    NetworkState get() {
+        return current;
+    }
+
+    /**
+     * Blocks until the initial state was read, which happens once right after the monitor was
+     * created.
+     *
+     * @return false if the timeout elapsed first, {@link #get()} is then still {@link NetworkState#NONE}
+     */
+    boolean awaitInitialized(long timeoutMillis) {
+        try {
+            return initialized.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param listener is not called with the current state, read it with {@link #get()}
+     */
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void readInitialState() {
+        try {
+            for (Network network : connectivityManager.getAllNetworks()) {
+                NetworkCapabilities caps = connectivityManager.getNetworkCapabilities(network);
+                if (caps == null || caps.hasTransport(NetworkCapabilities.TRANSPORT_VPN)
+                        || !caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) {
+                    continue;
+                }
+                Tracked tracked = track(network);
+                tracked.capabilities = caps;
+                tracked.linkProperties = connectivityManager.getLinkProperties(network);
+            }
+            update();
+        } catch (Exception e) {
+            Log.e(LOGTAG, "failed to read the initial network state", e);
+        } finally {
+            initialized.countDown();
+        }
+    }
+
+    private Tracked track(Network network) {
+        Tracked tracked = networks.get(network);
+        if (tracked == null) {
+            tracked = new Tracked();
+            networks.put(network, tracked);
+        }
+        return tracked;
+    }
+
+    private void update() {
+        NetworkState next = select();
+        NetworkState previous = current;
+        // readers get the latest capabilities, listeners only hear about changes they act on
+        current = next;
+        if (next.equals(previous)) {
+            return;
+        }
+        Log.d(LOGTAG, "network state: " + next);
+        for (Listener l : listeners) {
+            l.onNetworkStateChanged(previous, next);
+        }
+    }
+
+    // prefers the network the system itself would pick, otherwise the best tracked one by
+    // validation and transport
+    private NetworkState select() {
+        Network preferred = preferredNetwork();
+        Network best = preferred != null && networks.containsKey(preferred) ? preferred : null;
+        if (best == null) {
+            int bestRank = -1;
+            for (Map.Entry<Network, Tracked> e : networks.entrySet()) {
+                int rank = rank(e.getValue().capabilities);
+                if (rank > bestRank) {
+                    best = e.getKey();
+                    bestRank = rank;
+                }
+            }
+        }
+        if (best == null) {
+            return NetworkState.NONE;
+        }
+        Tracked tracked = networks.get(best);
+        return new NetworkState(best, tracked.linkProperties, tracked.capabilities);
+    }
+
+    // before S the active network is the system's choice, but while the tunnel is up it is the
+    // VPN itself and is not tracked
+    private Network preferredNetwork() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return bestMatch;
+        }
+        return connectivityManager.getActiveNetwork();
+    }
+
+    private static int rank(NetworkCapabilities caps) {
+        if (caps == null) {
+            return 0;
+        }
+        int rank = caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED) ? 10 : 1;
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            rank += 3;
+        } else if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            rank += 2;
+        } else if (caps.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            rank += 1;
+        }
+        return rank;
+    }
+
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            track(network);
+            update();
+        }
+
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
+            track(network).capabilities = networkCapabilities;
+            update();
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(@NonNull Network network, @NonNull LinkProperties linkProperties) {
+            track(network).linkProperties = linkProperties;
+            update();
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            networks.remove(network);
+            update();
+        }
+    };
+
+    // reports the network the system ranks best for the request, whatever the default of this app
+    private final ConnectivityManager.NetworkCallback bestMatchCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            bestMatch = network;
+            update();
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            if (network.equals(bestMatch)) {
+                bestMatch = null;
+                update();
+            }
+        }
+    };
+}
@@ -0,0 +1,50 @@
+package io.netbird.client.tool;
+
+import android.net.NetworkCapabilities;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Kind of underlying network a setting can apply to.
+ */
+public enum NetworkType {
+    WIFI(NetworkCapabilities.TRANSPORT_WIFI),
+    CELLULAR(NetworkCapabilities.TRANSPORT_CELLULAR),
+    ETHERNET(NetworkCapabilities.TRANSPORT_ETHERNET);
+
+    private final int transport;
+
+    NetworkType(int transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * @param transport one of the NetworkCapabilities transports
+     * @return null for other transports
+     */
+    static NetworkType of(int transport) {
+        for (NetworkType type : values()) {
+            if (type.transport == transport) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the types named in a preference value, unknown names are skipped
+     */
+    static Set<NetworkType> parse(Set<String> values) {
+        Set<NetworkType> types = EnumSet.noneOf(NetworkType.class);
+        for (String value : values) {
+            try {
+                types.add(valueOf(value.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                // written by a newer version
+            }
+        }
+        return types;
+    }
+}
@@ -3,12 +3,42 @@ package io.netbird.client.tool;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class Preferences {
 
     private final String keyTraceLog = "tracelog";
 
     private final String keyForceRelayConnection = "isConnectionForceRelayed";
 
+    private final String keyPeersRefreshInterval = "peersRefreshIntervalMillis";
+
+    private static final long defaultPeersRefreshIntervalMillis = 1000;
+
+    private final String keyLanBypass = "lanBypass";
+
+    private final String keyExcludedRoutes = "excludedRoutes";
+
+    private final String keyFallbackDnsServers = "fallbackDnsServers";
+
+    private static final String defaultFallbackDnsServers = "1.1.1.1";
+
+    private final String keyUnmeteredNetworkTypes = "unmeteredNetworkTypes";
+
+    private final String keySplitTunnelMode = "splitTunnelMode";
+
+    private final String keySplitTunnelPackages = "splitTunnelPackages";
+
+    // apps that break when their traffic goes through the tunnel
+    static final Set<String> defaultSplitTunnelPackages = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "com.google.android.projection.gearhead",
+            "com.google.android.apps.chromecast.app",
+            "com.google.android.apps.messaging",
+            "com.google.stadia.android")));
+
     private final SharedPreferences sharedPref;
 
     public static String configFile(Context context){
@@ -42,6 +72,95 @@ public class Preferences {
         sharedPref.edit().putBoolean(keyForceRelayConnection, false).apply();
     }
 
+    public long getPeersRefreshIntervalMillis() {
+        return sharedPref.getLong(keyPeersRefreshInterval, defaultPeersRefreshIntervalMillis);
+    }
+
+    public void setPeersRefreshIntervalMillis(long millis) {
+        sharedPref.edit().putLong(keyPeersRefreshInterval, millis).apply();
+    }
+
+    /**
+     * @return true if local subnets stay out of the tunnel when broader routes cover them
+     */
+    public boolean isLanBypassEnabled() {
+        return sharedPref.getBoolean(keyLanBypass, true);
+    }
+
+    public void setLanBypassEnabled(boolean enabled) {
+        sharedPref.edit().putBoolean(keyLanBypass, enabled).apply();
+    }
+
+    /**
+     * Configured through the managed configuration, which replaces the value stored here.
+     *
+     * @return ';' separated prefixes that never go through the tunnel
+     */
+    public String getExcludedRoutes() {
+        return sharedPref.getString(keyExcludedRoutes, "");
+    }
+
+    public void setExcludedRoutes(String routes) {
+        sharedPref.edit().putString(keyExcludedRoutes, routes).apply();
+    }
+
+    /**
+     * @return ';' separated resolvers used ahead of the network's when those fail or are link-local
+     * only, empty to use only the network's
+     */
+    public String getFallbackDnsServers() {
+        return sharedPref.getString(keyFallbackDnsServers, defaultFallbackDnsServers);
+    }
+
+    public void setFallbackDnsServers(String servers) {
+        sharedPref.edit().putString(keyFallbackDnsServers, servers).apply();
+    }
+
+    /**
+     * Configured through the managed configuration, which replaces the value stored here.
+     *
+     * @return network types the tunnel is declared unmetered on, whatever the network reports;
+     * empty to follow the network everywhere
+     */
+    public Set<NetworkType> getUnmeteredNetworkTypes() {
+        return NetworkType.parse(sharedPref.getStringSet(keyUnmeteredNetworkTypes, Collections.emptySet()));
+    }
+
+    public void setUnmeteredNetworkTypes(Set<NetworkType> types) {
+        Set<String> names = new HashSet<>();
+        for (NetworkType type : types) {
+            names.add(type.name());
+        }
+        sharedPref.edit().putStringSet(keyUnmeteredNetworkTypes, names).apply();
+    }
+
+    /**
+     * The app has no screen for the split tunnel, it is configured through the managed
+     * configuration, which replaces the mode and packages stored here.
+     */
+    public SplitTunnelMode getSplitTunnelMode() {
+        return SplitTunnelMode.parse(sharedPref.getString(keySplitTunnelMode, null), SplitTunnelMode.DENY);
+    }
+
+    public void setSplitTunnelMode(SplitTunnelMode mode) {
+        sharedPref.edit().putString(keySplitTunnelMode, mode.name()).apply();
+    }
+
+    /**
+     * @return packages of the allow or deny list, depending on the mode
+     */
+    public Set<String> getSplitTunnelPackages() {
+        return sharedPref.getStringSet(keySplitTunnelPackages, defaultSplitTunnelPackages);
+    }
+
+    public void setSplitTunnelPackages(Set<String> packages) {
+        sharedPref.edit().putStringSet(keySplitTunnelPackages, new HashSet<>(packages)).apply();
+    }
+
+    void registerOnChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        sharedPref.registerOnSharedPreferenceChangeListener(listener);
+    }
+
     public static String defaultServer() {
         return "https://api.netbird.io";
     }
@@ -0,0 +1,78 @@
+package io.netbird.client.tool;
+
+/**
+ * Snapshot of the automatic reconnect counters.
+ */
+public class ReconnectStats {
+
+    private final long attempts;
+    private final long recovered;
+    private final long givenUp;
+    private final long parked;
+    private final int consecutiveFailures;
+    private final long nextDelayMillis;
+    private final EngineFailure lastFailure;
+    private final long[] failures;
+
+    ReconnectStats(long attempts, long recovered, long givenUp, long parked, int consecutiveFailures,
+                   long nextDelayMillis, EngineFailure lastFailure, long[] failures) {
+        this.attempts = attempts;
+        this.recovered = recovered;
+        this.givenUp = givenUp;
+        this.parked = parked;
+        this.consecutiveFailures = consecutiveFailures;
+        this.nextDelayMillis = nextDelayMillis;
+        this.lastFailure = lastFailure;
+        this.failures = failures;
+    }
+
+    /**
+     * @return number of scheduled automatic retries
+     */
+    public long attempts() {
+        return attempts;
+    }
+
+    /**
+     * @return number of times the engine connected again after at least one failure
+     */
+    public long recovered() {
+        return recovered;
+    }
+
+    /**
+     * @return number of failures that were not retried
+     */
+    public long givenUp() {
+        return givenUp;
+    }
+
+    /**
+     * @return number of retries held back until the network validated
+     */
+    public long parked() {
+        return parked;
+    }
+
+    public int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return delay of the pending retry, or -1 if none is pending
+     */
+    public long nextDelayMillis() {
+        return nextDelayMillis;
+    }
+
+    /**
+     * @return null if the engine never failed
+     */
+    public EngineFailure lastFailure() {
+        return lastFailure;
+    }
+
+    public long failures(EngineFailure failure) {
+        return failures[failure.ordinal()];
+    }
+}
@@ -0,0 +1,108 @@
+package io.netbird.client.tool;
+
+import java.util.Random;
+
+/**
+ * Decides whether and when a failed engine run is retried. Recoverable failures are retried with
+ * capped exponential backoff and jitter, so devices that failed at the same moment, e.g. during a
+ * management outage, do not retry in lockstep.
+ */
+class ReconnectSupervisor {
+
+    static final long BASE_DELAY_MILLIS = 1_000;
+    static final long MAX_DELAY_MILLIS = 5 * 60_000;
+    // a TUN that can not be created usually means another VPN took over, retrying forever is pointless
+    static final int MAX_TUN_CREATION_ATTEMPTS = 3;
+
+    private final Random random;
+
+    private int consecutiveFailures = 0;
+    private long attempts = 0;
+    private long recovered = 0;
+    private long givenUp = 0;
+    private long parked = 0;
+    private long lastDelayMillis = -1;
+    private final long[] failures = new long[EngineFailure.values().length];
+    private EngineFailure lastFailure;
+
+    ReconnectSupervisor() {
+        this(new Random());
+    }
+
+    ReconnectSupervisor(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Records a failed engine run.
+     *
+     * @return delay before the next attempt in milliseconds, or -1 if the failure is not retried
+     */
+    synchronized long onFailure(EngineFailure failure) {
+        failures[failure.ordinal()]++;
+        lastFailure = failure;
+        consecutiveFailures++;
+
+        if (!failure.isRecoverable()
+                || (failure == EngineFailure.TUN_CREATION && consecutiveFailures > MAX_TUN_CREATION_ATTEMPTS)) {
+            givenUp++;
+            consecutiveFailures = 0;
+            lastDelayMillis = -1;
+            return -1;
+        }
+
+        attempts++;
+        lastDelayMillis = delayFor(consecutiveFailures);
+        return lastDelayMillis;
+    }
+
+    /**
+     * The engine connected, the next failure starts with the base delay again.
+     */
+    synchronized void onConnected() {
+        if (consecutiveFailures > 0) {
+            recovered++;
+        }
+        consecutiveFailures = 0;
+        lastDelayMillis = -1;
+    }
+
+    /**
+     * The user stopped the engine, pending retries no longer count as failures.
+     */
+    synchronized void reset() {
+        consecutiveFailures = 0;
+        lastDelayMillis = -1;
+    }
+
+    /**
+     * A retry was held back because the network can not reach the servers.
+     */
+    synchronized void onParked() {
+        parked++;
+        lastDelayMillis = -1;
+    }
+
+    /**
+     * The network validated again. Failures while it was down or behind a portal say nothing
+     * about the servers, so the backoff starts over; repeated TUN failures are kept.
+     */
+    synchronized void onNetworkRestored() {
+        if (lastFailure != EngineFailure.TUN_CREATION) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    synchronized ReconnectStats stats() {
+        return new ReconnectStats(attempts, recovered, givenUp, parked, consecutiveFailures, lastDelayMillis,
+                lastFailure, failures.clone());
+    }
+
+    // "equal jitter": at least half of the exponential delay, so retries never collapse to zero
+    private long delayFor(int failureCount) {
+        int shift = Math.min(failureCount - 1, 30);
+        long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << shift);
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+}
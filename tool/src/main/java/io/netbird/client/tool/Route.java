@@ -1,14 +1,30 @@
 package io.netbird.client.tool;
 
+import java.util.Objects;
+
 class Route {
    public String addr;
    public int prefixLength;
-   Route(String route) throws Exception {
-      String[] r = route.split("/");
-      if(r.length != 2) {
-         throw new Exception("invalid route");
-      }
-      addr = r[0];
-      prefixLength = Integer.parseInt(r[1]);
-   }
-}
\ No newline at end of file
+   Route(String addr, int prefixLength) {
+      this.addr = addr;
+      this.prefixLength = prefixLength;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Route)) return false;
+      Route route = (Route) o;
+      return prefixLength == route.prefixLength && Objects.equals(addr, route.addr);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hash(addr, prefixLength);
+   }
+
+   @Override
+   public String toString() {
+      return addr + "/" + prefixLength;
+   }
+}
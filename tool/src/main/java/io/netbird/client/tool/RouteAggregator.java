@@ -0,0 +1,119 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces a route list to the smallest set of prefixes that covers the same addresses: duplicates
+ * and routes inside a broader route are dropped, adjacent prefixes are merged. Excluded prefixes
+ * are either cut out of the routes or returned for {@code VpnService.Builder.excludeRoute}.
+ */
+class RouteAggregator {
+
+    static final class Result {
+        final List<Route> routes = new ArrayList<>();
+        // to pass to excludeRoute, always empty if it is not used
+        final List<Route> excluded = new ArrayList<>();
+        // local subnets that pushed routes pull into the tunnel
+        final List<Route> lanOverlaps = new ArrayList<>();
+    }
+
+    private static final RouteParser NONE = new RouteParser();
+
+    private RouteAggregator() {
+    }
+
+    /**
+     * @return IPv4 routes first, each family in address order
+     */
+    static List<Route> aggregate(RouteParser parsed) {
+        return aggregate(parsed, NONE, NONE, false, false).routes;
+    }
+
+    /**
+     * @param excluded         prefixes that never go through the tunnel
+     * @param lan              subnets of the underlying networks
+     * @param bypassLan        keep local subnets out of broader routes, e.g. of an exit node. A
+     *                         pushed route that equals or is inside a local subnet is kept
+     * @param useExcludeRoute  report exclusions instead of cutting them out of the routes, for
+     *                         API 33 and newer
+     */
+    static Result aggregate(RouteParser parsed, RouteParser excluded, RouteParser lan,
+                            boolean bypassLan, boolean useExcludeRoute) {
+        CidrTrie v4 = new CidrTrie(32);
+        CidrTrie v6 = new CidrTrie(128);
+        for (int i = 0; i < parsed.v4Count(); i++) {
+            v4.add(v4High(parsed.v4Address(i)), 0, parsed.v4PrefixLength(i));
+        }
+        for (int i = 0; i < parsed.v6Count(); i++) {
+            v6.add(parsed.v6High(i), parsed.v6Low(i), parsed.v6PrefixLength(i));
+        }
+        v4.aggregate();
+        v6.aggregate();
+
+        Result result = new Result();
+        for (int i = 0; i < excluded.v4Count(); i++) {
+            exclude(v4, v4High(excluded.v4Address(i)), 0, excluded.v4PrefixLength(i), useExcludeRoute, result);
+        }
+        for (int i = 0; i < excluded.v6Count(); i++) {
+            exclude(v6, excluded.v6High(i), excluded.v6Low(i), excluded.v6PrefixLength(i), useExcludeRoute, result);
+        }
+        for (int i = 0; i < lan.v4Count(); i++) {
+            checkLan(v4, v4High(lan.v4Address(i)), 0, lan.v4PrefixLength(i), bypassLan, useExcludeRoute, result);
+        }
+        for (int i = 0; i < lan.v6Count(); i++) {
+            checkLan(v6, lan.v6High(i), lan.v6Low(i), lan.v6PrefixLength(i), bypassLan, useExcludeRoute, result);
+        }
+
+        v4.forEach((hi, lo, prefixLength) -> result.routes.add(toRoute(hi, lo, prefixLength, 32)));
+        v6.forEach((hi, lo, prefixLength) -> result.routes.add(toRoute(hi, lo, prefixLength, 128)));
+        return result;
+    }
+
+    private static void exclude(CidrTrie trie, long hi, long lo, int prefixLength, boolean useExcludeRoute, Result result) {
+        if (!useExcludeRoute) {
+            trie.remove(hi, lo, prefixLength, true);
+            return;
+        }
+        // a more specific route wins over an excluded one, so those are removed in any case
+        if (trie.coverage(hi, lo, prefixLength) == CidrTrie.INSIDE_BROADER) {
+            result.excluded.add(toRoute(hi, lo, prefixLength, trie.maxBits()));
+        } else {
+            trie.remove(hi, lo, prefixLength, false);
+        }
+    }
+
+    private static void checkLan(CidrTrie trie, long hi, long lo, int prefixLength, boolean bypassLan,
+                                 boolean useExcludeRoute, Result result) {
+        int coverage = trie.coverage(hi, lo, prefixLength);
+        if (coverage == CidrTrie.NOT_COVERED) {
+            return;
+        }
+        int maxBits = trie.maxBits();
+        if (coverage == CidrTrie.CONTAINS_PREFIXES || !bypassLan) {
+            result.lanOverlaps.add(toRoute(hi, lo, prefixLength, maxBits));
+            return;
+        }
+        if (useExcludeRoute) {
+            result.excluded.add(toRoute(hi, lo, prefixLength, maxBits));
+        } else {
+            trie.remove(hi, lo, prefixLength, true);
+        }
+    }
+
+    private static long v4High(int addr) {
+        return (addr & 0xffffffffL) << 32;
+    }
+
+    // host bits are cleared, the builder rejects routes with host bits
+    private static Route toRoute(long hi, long lo, int prefixLength, int maxBits) {
+        long hiMask = prefixLength >= 64 ? -1L : (prefixLength == 0 ? 0 : -1L << (64 - prefixLength));
+        long loMask = prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+        hi &= hiMask;
+        lo &= loMask;
+        if (maxBits == 32) {
+            return new Route(RouteParser.formatV4((int) (hi >>> 32)), prefixLength);
+        }
+        return new Route(RouteParser.formatV6(hi, lo), prefixLength);
+    }
+}
@@ -0,0 +1,94 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Difference between two consecutive route lists reported by the engine.
+ */
+public class RouteDelta {
+
+    private final List<String> added;
+    private final List<String> removed;
+    private final List<String> unchanged;
+
+    RouteDelta(List<String> added, List<String> removed, List<String> unchanged) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.unchanged = Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * Splits a route list on commas, semicolons and whitespace. Duplicates are dropped, the order
+     * is kept.
+     */
+    static Set<String> parse(String routes) {
+        Set<String> set = new LinkedHashSet<>();
+        if (routes == null) {
+            return set;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= routes.length(); i++) {
+            boolean separator = i == routes.length() || isSeparator(routes.charAt(i));
+            if (!separator && start < 0) {
+                start = i;
+            } else if (separator && start >= 0) {
+                set.add(routes.substring(start, i));
+                start = -1;
+            }
+        }
+        return set;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';' || Character.isWhitespace(c);
+    }
+
+    static RouteDelta compute(Set<String> previous, Set<String> current) {
+        List<String> added = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        for (String route : current) {
+            if (previous.contains(route)) {
+                unchanged.add(route);
+            } else {
+                added.add(route);
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String route : previous) {
+            if (!current.contains(route)) {
+                removed.add(route);
+            }
+        }
+        return new RouteDelta(added, removed, unchanged);
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public List<String> getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return true if no route was added or removed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "added=" + added + ", removed=" + removed + ", unchanged=" + unchanged.size();
+    }
+}
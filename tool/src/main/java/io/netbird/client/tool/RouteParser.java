@@ -0,0 +1,334 @@
+package io.netbird.client.tool;
+
+import java.util.Arrays;
+
+/**
+ * Parses a ';' separated list of IPv4 and IPv6 prefixes in one pass, without creating strings or
+ * address objects. IPv4 prefixes are packed into one long each, IPv6 prefixes into two longs and
+ * a length. The arrays are reused by the next {@link #parse(CharSequence)}, so a parser instance
+ * must not be shared between threads.
+ */
+class RouteParser {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // address in bits 8..39, prefix length in bits 0..7
+    private long[] v4 = new long[INITIAL_CAPACITY];
+    private int v4Count;
+
+    // hi at 2n, lo at 2n+1
+    private long[] v6 = new long[2 * INITIAL_CAPACITY];
+    private byte[] v6PrefixLength = new byte[INITIAL_CAPACITY];
+    private int v6Count;
+
+    private int invalidCount;
+
+    // parse state, only valid during parse()
+    private CharSequence in;
+    private int pos;
+    private int end;
+    private final int[] groups = new int[8];
+
+    /**
+     * Replaces the previous result. A missing prefix length means a host prefix, malformed
+     * entries are skipped and counted.
+     *
+     * @return number of valid entries
+     */
+    int parse(CharSequence routes) {
+        v4Count = 0;
+        v6Count = 0;
+        invalidCount = 0;
+        if (routes == null) {
+            return 0;
+        }
+
+        in = routes;
+        pos = 0;
+        end = routes.length();
+        while (pos < end) {
+            skipSpaces();
+            if (pos == end) {
+                break;
+            }
+            if (in.charAt(pos) == ';') {
+                pos++;
+                continue;
+            }
+            if (!parseEntry()) {
+                invalidCount++;
+                while (pos < end && in.charAt(pos) != ';') {
+                    pos++;
+                }
+            }
+        }
+        in = null;
+        return v4Count + v6Count;
+    }
+
+    int v4Count() {
+        return v4Count;
+    }
+
+    int v4Address(int i) {
+        return (int) (v4[i] >>> 8);
+    }
+
+    int v4PrefixLength(int i) {
+        return (int) (v4[i] & 0xff);
+    }
+
+    int v6Count() {
+        return v6Count;
+    }
+
+    long v6High(int i) {
+        return v6[2 * i];
+    }
+
+    long v6Low(int i) {
+        return v6[2 * i + 1];
+    }
+
+    int v6PrefixLength(int i) {
+        return v6PrefixLength[i] & 0xff;
+    }
+
+    int invalidCount() {
+        return invalidCount;
+    }
+
+    /**
+     * Formats an address for APIs that only take strings, e.g. {@code VpnService.Builder}.
+     */
+    static String formatV4(int addr) {
+        return (addr >>> 24) + "." + ((addr >>> 16) & 0xff) + "." + ((addr >>> 8) & 0xff) + "." + (addr & 0xff);
+    }
+
+    static String formatV6(long hi, long lo) {
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            long word = i < 4 ? hi : lo;
+            if (i > 0) {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString((int) ((word >>> (48 - 16 * (i % 4))) & 0xffff)));
+        }
+        return sb.toString();
+    }
+
+    private boolean parseEntry() {
+        // the separator after the leading digits tells the family apart
+        int p = pos;
+        while (p < end && hexDigit(in.charAt(p)) >= 0) {
+            p++;
+        }
+        if (p < end && in.charAt(p) == '.') {
+            long addr = parseV4Address();
+            if (addr < 0) {
+                return false;
+            }
+            int prefixLength = parsePrefixLength(32);
+            if (prefixLength < 0) {
+                return false;
+            }
+            addV4((int) addr, prefixLength);
+            return true;
+        }
+        if (p < end && in.charAt(p) == ':') {
+            if (!parseV6Address()) {
+                return false;
+            }
+            int prefixLength = parsePrefixLength(128);
+            if (prefixLength < 0) {
+                return false;
+            }
+            addV6(prefixLength);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the address as unsigned value, -1 if malformed
+     */
+    private long parseV4Address() {
+        long addr = 0;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (pos == end || in.charAt(pos) != '.') {
+                    return -1;
+                }
+                pos++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (pos < end && digits < 4) {
+                char c = in.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                pos++;
+            }
+            if (digits == 0 || digits > 3 || value > 255) {
+                return -1;
+            }
+            addr = (addr << 8) | value;
+        }
+        return addr;
+    }
+
+    /**
+     * Parses into {@link #groups}, '::' is expanded.
+     */
+    private boolean parseV6Address() {
+        int count = 0;
+        int gap = -1;
+        if (startsWithDoubleColon()) {
+            gap = 0;
+            pos += 2;
+        }
+
+        while (pos < end) {
+            int start = pos;
+            int value = 0;
+            int digits = 0;
+            int d;
+            while (pos < end && (d = hexDigit(in.charAt(pos))) >= 0) {
+                value = (value << 4) | d;
+                digits++;
+                pos++;
+            }
+            if (digits == 0) {
+                // only "::" may end the address without a group
+                if (gap != count || count == 8) {
+                    return false;
+                }
+                break;
+            }
+            if (pos < end && in.charAt(pos) == '.') {
+                // embedded IPv4 address, e.g. ::ffff:192.0.2.1
+                if (count > 6) {
+                    return false;
+                }
+                pos = start;
+                long addr = parseV4Address();
+                if (addr < 0) {
+                    return false;
+                }
+                groups[count++] = (int) (addr >>> 16);
+                groups[count++] = (int) (addr & 0xffff);
+                break;
+            }
+            if (digits > 4 || count == 8) {
+                return false;
+            }
+            groups[count++] = value;
+
+            if (startsWithDoubleColon()) {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = count;
+                pos += 2;
+            } else if (pos < end && in.charAt(pos) == ':') {
+                pos++;
+                if (pos == end || hexDigit(in.charAt(pos)) < 0) {
+                    return false;
+                }
+            } else {
+                break;
+            }
+        }
+
+        if (gap < 0) {
+            return count == 8;
+        }
+        if (count > 7) {
+            return false;
+        }
+        int tail = count - gap;
+        System.arraycopy(groups, gap, groups, 8 - tail, tail);
+        Arrays.fill(groups, gap, 8 - tail, 0);
+        return true;
+    }
+
+    /**
+     * @return the prefix length, the full length if there is none, -1 if malformed
+     */
+    private int parsePrefixLength(int maxBits) {
+        skipSpaces();
+        if (pos == end || in.charAt(pos) == ';') {
+            return maxBits;
+        }
+        if (in.charAt(pos) != '/') {
+            return -1;
+        }
+        pos++;
+        int value = 0;
+        int digits = 0;
+        while (pos < end && digits < 4) {
+            char c = in.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            pos++;
+        }
+        skipSpaces();
+        if (digits == 0 || digits > 3 || value > maxBits || (pos < end && in.charAt(pos) != ';')) {
+            return -1;
+        }
+        return value;
+    }
+
+    private void addV4(int addr, int prefixLength) {
+        if (v4Count == v4.length) {
+            v4 = Arrays.copyOf(v4, v4Count * 2);
+        }
+        v4[v4Count++] = ((addr & 0xffffffffL) << 8) | prefixLength;
+    }
+
+    private void addV6(int prefixLength) {
+        if (v6Count == v6PrefixLength.length) {
+            v6 = Arrays.copyOf(v6, v6Count * 4);
+            v6PrefixLength = Arrays.copyOf(v6PrefixLength, v6Count * 2);
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < 4; i++) {
+            hi = (hi << 16) | groups[i];
+            lo = (lo << 16) | groups[i + 4];
+        }
+        v6[2 * v6Count] = hi;
+        v6[2 * v6Count + 1] = lo;
+        v6PrefixLength[v6Count] = (byte) prefixLength;
+        v6Count++;
+    }
+
+    private boolean startsWithDoubleColon() {
+        return pos + 1 < end && in.charAt(pos) == ':' && in.charAt(pos + 1) == ':';
+    }
+
+    private void skipSpaces() {
+        while (pos < end && in.charAt(pos) == ' ') {
+            pos++;
+        }
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
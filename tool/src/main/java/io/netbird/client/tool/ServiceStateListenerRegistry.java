@@ -0,0 +1,77 @@
+package io.netbird.client.tool;
+
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Copy-on-write set of {@link ServiceStateListener}s. Callbacks run on the callback executor, so
+ * a slow listener never blocks the thread that reports the state change.
+ */
+class ServiceStateListenerRegistry {
+
+    private static final String LOGTAG = "ServiceStateListeners";
+
+    private final CopyOnWriteArraySet<ServiceStateListener> listeners = new CopyOnWriteArraySet<>();
+    private final Executor callbackExecutor;
+
+    /**
+     * @param callbackExecutor must run tasks in submission order, otherwise listeners could see the
+     *                         states out of order
+     */
+    ServiceStateListenerRegistry(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Adds the listener and tells it the current state.
+     */
+    void add(ServiceStateListener listener, boolean engineIsRunning) {
+        if (!listeners.add(listener)) {
+            return;
+        }
+        callbackExecutor.execute(() -> {
+            if (engineIsRunning) {
+                listener.onStarted();
+            } else {
+                listener.onStopped();
+            }
+        });
+    }
+
+    void remove(ServiceStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    int size() {
+        return listeners.size();
+    }
+
+    void notifyStarted() {
+        dispatch(ServiceStateListener::onStarted);
+    }
+
+    void notifyStopped() {
+        dispatch(ServiceStateListener::onStopped);
+    }
+
+    void notifyError(String msg) {
+        dispatch(l -> l.onError(msg));
+    }
+
+    private void dispatch(Consumer<ServiceStateListener> callback) {
+        // the array is a snapshot, listeners added later do not get this event
+        Object[] snapshot = listeners.toArray();
+        callbackExecutor.execute(() -> {
+            for (Object l : snapshot) {
+                try {
+                    callback.accept((ServiceStateListener) l);
+                } catch (Exception e) {
+                    Log.e(LOGTAG, "service state listener failed", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,153 @@
+package io.netbird.client.tool;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable view of the app preferences. Obtain the current one from {@link SettingsStore}. The
+ * netbird.cfg fields are read and written through {@link ConfigWriter}.
+ */
+public final class Settings {
+
+    // SharedPreferences
+    private final boolean traceLogEnabled;
+    private final boolean connectionForceRelayed;
+    private final long peersRefreshIntervalMillis;
+    private final boolean lanBypassEnabled;
+    private final String excludedRoutes;
+    private final String fallbackDnsServers;
+    private final Set<NetworkType> unmeteredNetworkTypes;
+    private final SplitTunnelMode splitTunnelMode;
+    private final Set<String> splitTunnelPackages;
+    // set by the device management, the user can not change it then
+    private final boolean splitTunnelManaged;
+
+    private Settings(boolean traceLogEnabled, boolean connectionForceRelayed, long peersRefreshIntervalMillis,
+                     boolean lanBypassEnabled, String excludedRoutes, String fallbackDnsServers,
+                     Set<NetworkType> unmeteredNetworkTypes,
+                     SplitTunnelMode splitTunnelMode, Set<String> splitTunnelPackages, boolean splitTunnelManaged) {
+        this.traceLogEnabled = traceLogEnabled;
+        this.connectionForceRelayed = connectionForceRelayed;
+        this.peersRefreshIntervalMillis = peersRefreshIntervalMillis;
+        this.lanBypassEnabled = lanBypassEnabled;
+        this.excludedRoutes = excludedRoutes;
+        this.fallbackDnsServers = fallbackDnsServers;
+        this.unmeteredNetworkTypes = Collections.unmodifiableSet(unmeteredNetworkTypes.isEmpty()
+                ? EnumSet.noneOf(NetworkType.class) : EnumSet.copyOf(unmeteredNetworkTypes));
+        this.splitTunnelMode = splitTunnelMode;
+        this.splitTunnelPackages = Collections.unmodifiableSet(new HashSet<>(splitTunnelPackages));
+        this.splitTunnelManaged = splitTunnelManaged;
+    }
+
+    static Settings fromPreferences(Preferences preferences) {
+        return new Settings(false, false, 0, true, "", "", Collections.emptySet(), SplitTunnelMode.OFF, Collections.emptySet(), false)
+                .withPreferences(preferences);
+    }
+
+    Settings withPreferences(Preferences preferences) {
+        return new Settings(preferences.isTraceLogEnabled(), preferences.isConnectionForceRelayed(),
+                preferences.getPeersRefreshIntervalMillis(), preferences.isLanBypassEnabled(),
+                preferences.getExcludedRoutes(), preferences.getFallbackDnsServers(),
+                preferences.getUnmeteredNetworkTypes(),
+                preferences.getSplitTunnelMode(), preferences.getSplitTunnelPackages(), false);
+    }
+
+    /**
+     * Replaces the split tunnel settings with the ones from the device management.
+     */
+    Settings withManagedSplitTunnel(SplitTunnelMode mode, Set<String> packages) {
+        return new Settings(traceLogEnabled, connectionForceRelayed, peersRefreshIntervalMillis,
+                lanBypassEnabled, excludedRoutes, fallbackDnsServers, unmeteredNetworkTypes, mode, packages, true);
+    }
+
+    /**
+     * Replaces the excluded routes with the ones from the device management.
+     */
+    Settings withExcludedRoutes(String excludedRoutes) {
+        return new Settings(traceLogEnabled, connectionForceRelayed, peersRefreshIntervalMillis,
+                lanBypassEnabled, excludedRoutes, fallbackDnsServers, unmeteredNetworkTypes,
+                splitTunnelMode, splitTunnelPackages, splitTunnelManaged);
+    }
+
+    /**
+     * Replaces the unmetered network types with the ones from the device management.
+     */
+    Settings withUnmeteredNetworkTypes(Set<NetworkType> unmeteredNetworkTypes) {
+        return new Settings(traceLogEnabled, connectionForceRelayed, peersRefreshIntervalMillis,
+                lanBypassEnabled, excludedRoutes, fallbackDnsServers, unmeteredNetworkTypes,
+                splitTunnelMode, splitTunnelPackages, splitTunnelManaged);
+    }
+
+    public boolean isTraceLogEnabled() {
+        return traceLogEnabled;
+    }
+
+    public boolean isConnectionForceRelayed() {
+        return connectionForceRelayed;
+    }
+
+    public long getPeersRefreshIntervalMillis() {
+        return peersRefreshIntervalMillis;
+    }
+
+    public boolean isLanBypassEnabled() {
+        return lanBypassEnabled;
+    }
+
+    public String getExcludedRoutes() {
+        return excludedRoutes;
+    }
+
+    /**
+     * @return ';' separated resolvers offered to the engine when the network's own ones fail
+     */
+    public String getFallbackDnsServers() {
+        return fallbackDnsServers;
+    }
+
+    /**
+     * @return network types the tunnel is declared unmetered on, it follows the network on others
+     */
+    public Set<NetworkType> getUnmeteredNetworkTypes() {
+        return unmeteredNetworkTypes;
+    }
+
+    public SplitTunnelMode getSplitTunnelMode() {
+        return splitTunnelMode;
+    }
+
+    public Set<String> getSplitTunnelPackages() {
+        return splitTunnelPackages;
+    }
+
+    public boolean isSplitTunnelManaged() {
+        return splitTunnelManaged;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Settings)) return false;
+        Settings that = (Settings) o;
+        return traceLogEnabled == that.traceLogEnabled
+                && connectionForceRelayed == that.connectionForceRelayed
+                && peersRefreshIntervalMillis == that.peersRefreshIntervalMillis
+                && lanBypassEnabled == that.lanBypassEnabled
+                && Objects.equals(excludedRoutes, that.excludedRoutes)
+                && Objects.equals(fallbackDnsServers, that.fallbackDnsServers)
+                && unmeteredNetworkTypes.equals(that.unmeteredNetworkTypes)
+                && splitTunnelMode == that.splitTunnelMode
+                && splitTunnelPackages.equals(that.splitTunnelPackages)
+                && splitTunnelManaged == that.splitTunnelManaged;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(traceLogEnabled, connectionForceRelayed, peersRefreshIntervalMillis,
+                lanBypassEnabled, excludedRoutes, fallbackDnsServers, unmeteredNetworkTypes,
+                splitTunnelMode, splitTunnelPackages, splitTunnelManaged);
+    }
+}
@@ -0,0 +1,160 @@
+package io.netbird.client.tool;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.RestrictionsManager;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide holder of the current {@link Settings}. The snapshot is rebuilt when a preference
+ * or the managed configuration changes, readers never touch the disk.
+ */
+public class SettingsStore {
+
+    private static final String LOGTAG = "SettingsStore";
+
+    // managed configuration keys, see res/xml/app_restrictions.xml
+    static final String RESTRICTION_SPLIT_TUNNEL_MODE = "split_tunnel_mode";
+    static final String RESTRICTION_SPLIT_TUNNEL_PACKAGES = "split_tunnel_packages";
+    static final String RESTRICTION_EXCLUDED_ROUTES = "excluded_routes";
+    static final String RESTRICTION_UNMETERED_NETWORK_TYPES = "unmetered_network_types";
+
+    public interface Listener {
+        /**
+         * Called on a background thread, only when a value changed.
+         */
+        void onSettingsChanged(Settings settings);
+    }
+
+    private static SettingsStore instance;
+
+    private final Context context;
+    private final Preferences preferences;
+    private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> new Thread(r, "netbird-settings"));
+    private volatile Settings current;
+
+    // SharedPreferences keeps only a weak reference to its listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceListener =
+            (sharedPreferences, key) -> refresher.execute(this::refreshPreferences);
+
+    public static synchronized SettingsStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SettingsStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the instance on a background thread. The first {@link #getInstance(Context)} reads
+     * the preferences and asks for the managed configuration, which should not happen on the main
+     * thread.
+     */
+    public static void warmUp(Context context) {
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> getInstance(appContext), "netbird-settings-init").start();
+    }
+
+    private SettingsStore(Context context) {
+        this.context = context;
+        preferences = new Preferences(context);
+
+        current = withRestrictions(Settings.fromPreferences(preferences));
+
+        preferences.registerOnChangeListener(preferenceListener);
+
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                refresher.execute(SettingsStore.this::refreshPreferences);
+            }
+        }, new IntentFilter(Intent.ACTION_APPLICATION_RESTRICTIONS_CHANGED));
+    }
+
+    public Settings get() {
+        return current;
+    }
+
+    /**
+     * @param listener is not called with the current settings, read them with {@link #get()}
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void refreshPreferences() {
+        publish(withRestrictions(current.withPreferences(preferences)));
+    }
+
+    // the device management overrides what the user picked
+    private Settings withRestrictions(Settings settings) {
+        RestrictionsManager rm = context.getSystemService(RestrictionsManager.class);
+        Bundle restrictions = rm == null ? null : rm.getApplicationRestrictions();
+        if (restrictions == null) {
+            return settings;
+        }
+
+        if (restrictions.containsKey(RESTRICTION_SPLIT_TUNNEL_MODE)) {
+            SplitTunnelMode mode = SplitTunnelMode.parse(restrictions.getString(RESTRICTION_SPLIT_TUNNEL_MODE), settings.getSplitTunnelMode());
+            Set<String> packages = new HashSet<>(splitList(restrictions.getString(RESTRICTION_SPLIT_TUNNEL_PACKAGES)));
+            settings = settings.withManagedSplitTunnel(mode, packages);
+        }
+        String excludedRoutes = restrictions.getString(RESTRICTION_EXCLUDED_ROUTES);
+        if (excludedRoutes != null) {
+            settings = settings.withExcludedRoutes(String.join(";", splitList(excludedRoutes)));
+        }
+        String[] unmetered = restrictions.getStringArray(RESTRICTION_UNMETERED_NETWORK_TYPES);
+        if (unmetered != null) {
+            settings = settings.withUnmeteredNetworkTypes(NetworkType.parse(new HashSet<>(Arrays.asList(unmetered))));
+        }
+        return settings;
+    }
+
+    /**
+     * @return the entries of a comma, semicolon or whitespace separated managed value
+     */
+    private static List<String> splitList(String list) {
+        List<String> entries = new ArrayList<>();
+        if (list == null) {
+            return entries;
+        }
+        for (String entry : list.split("[,;\\s]+")) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    // only called on the refresher thread
+    private void publish(Settings settings) {
+        if (settings.equals(current)) {
+            return;
+        }
+        current = settings;
+        for (Listener l : listeners) {
+            try {
+                l.onSettingsChanged(settings);
+            } catch (Exception e) {
+                Log.e(LOGTAG, "settings listener failed", e);
+            }
+        }
+    }
+}
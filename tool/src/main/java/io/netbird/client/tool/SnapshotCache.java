@@ -0,0 +1,107 @@
+package io.netbird.client.tool;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches the result of an expensive fetch as a versioned snapshot. Invalidations are coalesced
+ * into at most one refresh per interval and every reader gets the same snapshot.
+ */
+class SnapshotCache<T> {
+
+    static final class Snapshot<T> {
+        private final long version;
+        private final T value;
+
+        Snapshot(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+
+        /**
+         * @return increases by one with every refresh
+         */
+        public long version() {
+            return version;
+        }
+
+        public T value() {
+            return value;
+        }
+    }
+
+    private final Supplier<T> fetcher;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalMillis;
+    private final LongSupplier clock;
+    private final Consumer<Snapshot<T>> onRefreshed;
+
+    private Snapshot<T> current;
+    private boolean dirty = true;
+    private boolean refreshScheduled = false;
+    private long lastRefreshMillis;
+
+    /**
+     * @param onRefreshed called after a refresh that was triggered by {@link #invalidate()}
+     */
+    SnapshotCache(Supplier<T> fetcher, ScheduledExecutorService scheduler, long intervalMillis,
+                  Consumer<Snapshot<T>> onRefreshed) {
+        this(fetcher, scheduler, intervalMillis, onRefreshed, System::currentTimeMillis);
+    }
+
+    SnapshotCache(Supplier<T> fetcher, ScheduledExecutorService scheduler, long intervalMillis,
+                  Consumer<Snapshot<T>> onRefreshed, LongSupplier clock) {
+        this.fetcher = fetcher;
+        this.scheduler = scheduler;
+        this.intervalMillis = intervalMillis;
+        this.onRefreshed = onRefreshed;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the current snapshot. Fetches synchronously only if there is no snapshot yet, or the
+     * cache is invalid and the last refresh is older than the interval.
+     */
+    synchronized Snapshot<T> get() {
+        if (current == null || (dirty && clock.getAsLong() - lastRefreshMillis >= intervalMillis)) {
+            refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Marks the snapshot as stale and schedules a refresh, no earlier than one interval after the
+     * previous one.
+     */
+    synchronized void invalidate() {
+        dirty = true;
+        if (refreshScheduled || scheduler.isShutdown()) {
+            return;
+        }
+        refreshScheduled = true;
+        long delay = Math.max(0, lastRefreshMillis + intervalMillis - clock.getAsLong());
+        scheduler.schedule(this::scheduledRefresh, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduledRefresh() {
+        Snapshot<T> snapshot;
+        synchronized (this) {
+            refreshScheduled = false;
+            if (dirty) {
+                refresh();
+            }
+            snapshot = current;
+        }
+        onRefreshed.accept(snapshot);
+    }
+
+    private void refresh() {
+        long version = current == null ? 1 : current.version + 1;
+        current = new Snapshot<>(version, fetcher.get());
+        dirty = false;
+        lastRefreshMillis = clock.getAsLong();
+    }
+}
@@ -0,0 +1,29 @@
+package io.netbird.client.tool;
+
+import java.util.Locale;
+
+/**
+ * Which apps use the tunnel.
+ */
+public enum SplitTunnelMode {
+    // every app
+    OFF,
+    // only the listed apps; if none of them is installed, every app
+    ALLOW,
+    // every app but the listed ones
+    DENY;
+
+    /**
+     * @return the mode for a preference or managed configuration value, the fallback if unknown
+     */
+    static SplitTunnelMode parse(String value, SplitTunnelMode fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
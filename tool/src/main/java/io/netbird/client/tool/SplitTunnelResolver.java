@@ -0,0 +1,126 @@
+package io.netbird.client.tool;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the split tunnel package list resolved against the installed apps, so building the TUN
+ * does not query the PackageManager. Resolves again when the settings change or an app is
+ * installed or removed.
+ */
+class SplitTunnelResolver {
+
+    private static final String LOGTAG = "SplitTunnelResolver";
+
+    static final class Resolved {
+        static final Resolved NONE = new Resolved(SplitTunnelMode.OFF, Collections.emptySet());
+
+        final SplitTunnelMode mode;
+        // only installed packages visible to the app, see the queries in the manifest; the
+        // builder throws for unknown ones
+        final Set<String> packages;
+
+        Resolved(SplitTunnelMode mode, Set<String> packages) {
+            this.mode = mode;
+            this.packages = Collections.unmodifiableSet(packages);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Resolved)) return false;
+            Resolved that = (Resolved) o;
+            return mode == that.mode && packages.equals(that.packages);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, packages);
+        }
+    }
+
+    private final Context context;
+    private final SettingsStore settingsStore;
+    private final ExecutorService resolver = Executors.newSingleThreadExecutor(r -> new Thread(r, "netbird-split-tunnel"));
+    private volatile Resolved resolved;
+
+    private final SettingsStore.Listener settingsListener = settings -> resolveAsync();
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            resolveAsync();
+        }
+    };
+
+    SplitTunnelResolver(Context context, SettingsStore settingsStore) {
+        this.context = context;
+        this.settingsStore = settingsStore;
+
+        settingsStore.addListener(settingsListener);
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiver(packageReceiver, filter);
+        resolveAsync();
+    }
+
+    /**
+     * @return the cached result, resolves on the calling thread only if nothing has been resolved yet
+     */
+    Resolved get() {
+        Resolved r = resolved;
+        if (r == null) {
+            r = resolve(settingsStore.get());
+            resolved = r;
+        }
+        return r;
+    }
+
+    void release() {
+        settingsStore.removeListener(settingsListener);
+        context.unregisterReceiver(packageReceiver);
+        resolver.shutdown();
+    }
+
+    private void resolveAsync() {
+        resolver.execute(() -> resolved = resolve(settingsStore.get()));
+    }
+
+    private Resolved resolve(Settings settings) {
+        SplitTunnelMode mode = settings.getSplitTunnelMode();
+        if (mode == SplitTunnelMode.OFF) {
+            return Resolved.NONE;
+        }
+
+        PackageManager pm = context.getPackageManager();
+        Set<String> installed = new HashSet<>();
+        for (String packageName : settings.getSplitTunnelPackages()) {
+            try {
+                pm.getApplicationInfo(packageName, 0);
+                installed.add(packageName);
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.d(LOGTAG, "split tunnel app not installed or not visible: " + packageName);
+            }
+        }
+
+        // an empty allow list would route nothing, which is never what the admin wants
+        if (mode == SplitTunnelMode.ALLOW && installed.isEmpty()) {
+            Log.w(LOGTAG, "split tunnel ALLOW list " + settings.getSplitTunnelPackages()
+                    + " has no installed app, falling back to all apps using the tunnel");
+            return Resolved.NONE;
+        }
+        return new Resolved(mode, installed);
+    }
+}
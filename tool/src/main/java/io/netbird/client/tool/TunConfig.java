@@ -0,0 +1,98 @@
+package io.netbird.client.tool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Canonical form of everything that goes into a TUN interface. Two configs are equal if the
+ * interfaces built from them would be the same, so an equal config needs no new establish().
+ */
+class TunConfig {
+
+    final Route address;
+    final int mtu;
+    // null if no DNS server is set on the interface
+    final String dns;
+    final List<String> searchDomains;
+    // aggregated, so the order does not depend on the order the engine sent them in
+    final List<Route> routes;
+    // passed to excludeRoute, only used on API 33 and newer
+    final List<Route> excludedRoutes;
+    final SplitTunnelResolver.Resolved splitTunnel;
+    // false declares the interface unmetered, true lets it follow the underlying network
+    final boolean metered;
+
+    TunConfig(Route address, int mtu, String dns, List<String> searchDomains, List<Route> routes) {
+        this(address, mtu, dns, searchDomains, routes, Collections.emptyList(), SplitTunnelResolver.Resolved.NONE, true);
+    }
+
+    TunConfig(Route address, int mtu, String dns, List<String> searchDomains, List<Route> routes,
+              List<Route> excludedRoutes, SplitTunnelResolver.Resolved splitTunnel, boolean metered) {
+        this.address = address;
+        this.mtu = mtu;
+        this.dns = dns;
+        this.searchDomains = Collections.unmodifiableList(new ArrayList<>(searchDomains));
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        this.excludedRoutes = Collections.unmodifiableList(new ArrayList<>(excludedRoutes));
+        this.splitTunnel = splitTunnel;
+        this.metered = metered;
+    }
+
+    TunConfig withAddress(Route address) {
+        return new TunConfig(address, mtu, dns, searchDomains, routes, excludedRoutes, splitTunnel, metered);
+    }
+
+    /**
+     * @return names of the fields that differ from the previous config
+     */
+    List<String> changedFields(TunConfig previous) {
+        List<String> changed = new ArrayList<>();
+        if (!address.equals(previous.address)) {
+            changed.add("address");
+        }
+        if (mtu != previous.mtu) {
+            changed.add("mtu");
+        }
+        if (!Objects.equals(dns, previous.dns)) {
+            changed.add("dns");
+        }
+        if (!searchDomains.equals(previous.searchDomains)) {
+            changed.add("searchDomains");
+        }
+        if (!routes.equals(previous.routes)) {
+            changed.add("routes");
+        }
+        if (!excludedRoutes.equals(previous.excludedRoutes)) {
+            changed.add("excludedRoutes");
+        }
+        if (!splitTunnel.equals(previous.splitTunnel)) {
+            changed.add("splitTunnel");
+        }
+        if (metered != previous.metered) {
+            changed.add("metered");
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TunConfig)) return false;
+        TunConfig that = (TunConfig) o;
+        return mtu == that.mtu
+                && address.equals(that.address)
+                && Objects.equals(dns, that.dns)
+                && searchDomains.equals(that.searchDomains)
+                && routes.equals(that.routes)
+                && excludedRoutes.equals(that.excludedRoutes)
+                && splitTunnel.equals(that.splitTunnel)
+                && metered == that.metered;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(address, mtu, dns, searchDomains, routes, excludedRoutes, splitTunnel, metered);
+    }
+}
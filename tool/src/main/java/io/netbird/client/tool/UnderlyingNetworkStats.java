@@ -0,0 +1,47 @@
+package io.netbird.client.tool;
+
+/**
+ * Snapshot of the network the tunnel is declared to run over.
+ */
+public class UnderlyingNetworkStats {
+
+    private final long updates;
+    private final int transport;
+    private final int downstreamKbps;
+    private final int upstreamKbps;
+
+    UnderlyingNetworkStats(long updates, int transport, int downstreamKbps, int upstreamKbps) {
+        this.updates = updates;
+        this.transport = transport;
+        this.downstreamKbps = downstreamKbps;
+        this.upstreamKbps = upstreamKbps;
+    }
+
+    /**
+     * @return number of times the underlying network was handed to the system
+     */
+    public long updates() {
+        return updates;
+    }
+
+    /**
+     * @return one of the NetworkCapabilities transports, -1 if unknown
+     */
+    public int transport() {
+        return transport;
+    }
+
+    /**
+     * @return the system's estimate of the downstream bandwidth, 0 if unknown
+     */
+    public int downstreamKbps() {
+        return downstreamKbps;
+    }
+
+    /**
+     * @return the system's estimate of the upstream bandwidth, 0 if unknown
+     */
+    public int upstreamKbps() {
+        return upstreamKbps;
+    }
+}
@@ -0,0 +1,113 @@
+package io.netbird.client.tool;
+
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.VpnService;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.Objects;
+
+/**
+ * Keeps the network the tunnel runs over declared to the system. With a declared network the
+ * VPN takes over its transport, metered state and bandwidth estimates, so apps behind the tunnel
+ * see the real link instead of a generic one. The system follows later capability changes of a
+ * declared network by itself, only a switch to another network has to be declared again.
+ */
+class UnderlyingNetworkTracker {
+
+    private static final String LOGTAG = "UnderlyingNetwork";
+
+    private final VpnService vpnService;
+    private final NetworkStateMonitor networkMonitor;
+    private final NetworkStateMonitor.Listener networkListener = (previous, current) -> onNetworkState(current);
+
+    // true while an established interface exists, the service rejects declarations without one
+    private boolean established = false;
+    private boolean declared = false;
+    private Network declaredNetwork;
+    private long updates = 0;
+
+    UnderlyingNetworkTracker(VpnService vpnService, NetworkStateMonitor networkMonitor) {
+        this.vpnService = vpnService;
+        this.networkMonitor = networkMonitor;
+        networkMonitor.addListener(networkListener);
+    }
+
+    /**
+     * Declares the current network on an interface that is about to be established, so it starts
+     * with the right capabilities. Before Q the builder can not take it, the network is declared
+     * on the service once the interface is up.
+     */
+    synchronized void applyTo(VpnService.Builder builder) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        Network network = networkMonitor.get().network();
+        if (network == null) {
+            return;
+        }
+        builder.setUnderlyingNetworks(new Network[]{network});
+        declared = true;
+        declaredNetwork = network;
+        updates++;
+    }
+
+    synchronized void onEstablished() {
+        established = true;
+        declare(networkMonitor.get());
+    }
+
+    /**
+     * The interface is gone, the next one is declared from scratch.
+     */
+    synchronized void onClosed() {
+        established = false;
+        declared = false;
+        declaredNetwork = null;
+    }
+
+    synchronized UnderlyingNetworkStats stats() {
+        NetworkState state = networkMonitor.get();
+        NetworkCapabilities caps = state.capabilities();
+        if (caps == null) {
+            return new UnderlyingNetworkStats(updates, -1, 0, 0);
+        }
+        return new UnderlyingNetworkStats(updates, state.transport(),
+                caps.getLinkDownstreamBandwidthKbps(), caps.getLinkUpstreamBandwidthKbps());
+    }
+
+    void release() {
+        networkMonitor.removeListener(networkListener);
+    }
+
+    private synchronized void onNetworkState(NetworkState current) {
+        if (!established) {
+            return;
+        }
+        declare(current);
+    }
+
+    private void declare(NetworkState state) {
+        Network network = state.network();
+        // a handover passes through no network at all, an empty declaration would show the VPN
+        // as disconnected for that moment; the system ignores a declared network once it is lost
+        if (network == null) {
+            return;
+        }
+        if (declared && Objects.equals(network, declaredNetwork)) {
+            return;
+        }
+        if (!vpnService.setUnderlyingNetworks(new Network[]{network})) {
+            Log.w(LOGTAG, "failed to declare the underlying network " + network);
+            return;
+        }
+        declared = true;
+        declaredNetwork = network;
+        updates++;
+        NetworkCapabilities caps = state.capabilities();
+        Log.d(LOGTAG, "underlying network " + network + ", transport " + state.transport()
+                + (caps == null ? "" : ", " + caps.getLinkDownstreamBandwidthKbps() + "/"
+                + caps.getLinkUpstreamBandwidthKbps() + " kbps"));
+    }
+}
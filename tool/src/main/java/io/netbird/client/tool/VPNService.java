@@ -13,6 +13,8 @@ import android.os.Parcel;
 import android.util.Log;
 import androidx.annotation.Nullable;
 
+import java.util.List;
+
 import io.netbird.gomobile.android.ConnectionListener;
 import io.netbird.gomobile.android.NetworkArray;
 import io.netbird.gomobile.android.PeerInfoArray;
@@ -26,16 +28,16 @@ public class VPNService extends android.net.VpnService {
 
     private final IBinder myBinder = new MyLocalBinder();
 
-    private EngineRunner engineRunner;
+    private final EngineBootstrap engineBootstrap = new EngineBootstrap();
     private ForegroundNotification fgNotification;
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(LOGTAG, "onCreate");
-        engineRunner = new EngineRunner(this);
         fgNotification = new ForegroundNotification(this);
-        engineRunner.addServiceStateListener(serviceStateListener);
+        engineBootstrap.start(this);
+        engineBootstrap.whenReady(engineRunner -> engineRunner.addServiceStateListener(serviceStateListener));
     }
 
     @Override
@@ -47,7 +49,7 @@ public class VPNService extends android.net.VpnService {
 
         if(INTENT_ALWAYS_ON_START.equals(intent.getAction())) {
             fgNotification.startForeground();
-            engineRunner.runWithoutAuth();
+            engineBootstrap.whenReady(EngineRunner::runWithoutAuth);
         }
         return super.onStartCommand(intent, flags, startId);
     }
@@ -61,7 +63,8 @@ public class VPNService extends android.net.VpnService {
     @Override
     public boolean onUnbind (Intent intent) {
         Log.d(LOGTAG, "unbind from activity");
-        if(!engineRunner.isRunning()) {
+        EngineRunner engineRunner = engineBootstrap.getIfReady();
+        if(engineRunner == null || !engineRunner.isRunning()) {
             stopSelf();
         }
         return false; // false means do not call onRebind
@@ -71,16 +74,33 @@ public class VPNService extends android.net.VpnService {
     public void onDestroy() {
         super.onDestroy();
         Log.d(LOGTAG, "onDestroy");
-        engineRunner.stop();
+        // also covers an engine that is still being created, a queued start is dropped
+        engineBootstrap.shutdown(engineRunner -> {
+            engineRunner.stop();
+            engineRunner.release();
+        });
         stopForeground(true);
     }
 
     @Override
     public void onRevoke() {
         Log.d(LOGTAG, "VPN permission on revoke");
+        EngineRunner engineRunner = engineBootstrap.getIfReady();
         if(engineRunner!=null) {
-            engineRunner.stop();
-            stopForeground(true);
+            // keep the notification until the tunnel is really down
+            engineRunner.stop().whenComplete((v, e) -> stopForeground(true));
+        }
+    }
+
+    /**
+     * Shows the foreground notification again before the engine retries on its own.
+     */
+    void restoreForeground() {
+        try {
+            fgNotification.startForeground();
+        } catch (IllegalStateException e) {
+            // Android 12+ may refuse a foreground start from the background
+            Log.w(LOGTAG, "failed to restore the foreground notification", e);
         }
     }
 
@@ -104,35 +124,87 @@ public class VPNService extends android.net.VpnService {
 
         public void runEngine(URLOpener urlOpener) {
             fgNotification.startForeground();
-            engineRunner.run(urlOpener);
+            engineBootstrap.await().run(urlOpener);
         }
 
         public void stopEngine() {
-            engineRunner.stop();
+            engineBootstrap.await().stop();
         }
 
         public PeerInfoArray peersInfo() {
-            return engineRunner.peersInfo();
+            return engineBootstrap.await().peersInfo();
         }
 
         public NetworkArray networks() {
-            return engineRunner.networks();
+            return engineBootstrap.await().networks();
         }
 
         public void setConnectionStateListener(ConnectionListener listener) {
-            engineRunner.setConnectionListener(listener);
+            engineBootstrap.await().setConnectionListener(listener);
         }
 
         public void removeConnectionStateListener() {
-            engineRunner.removeStatusListener();
+            engineBootstrap.await().removeStatusListener();
         }
 
         public void addServiceStateListener(ServiceStateListener serviceStateListener) {
-            engineRunner.addServiceStateListener(serviceStateListener);
+            engineBootstrap.await().addServiceStateListener(serviceStateListener);
         }
 
         public void removeServiceStateListener(ServiceStateListener serviceStateListener) {
-            engineRunner.removeServiceStateListener(serviceStateListener);
+            engineBootstrap.await().removeServiceStateListener(serviceStateListener);
+        }
+
+        public List<ConnectTimeline> connectTimelines() {
+            return engineBootstrap.await().connectTimelines();
+        }
+
+        public EngineState engineState() {
+            return engineBootstrap.await().state();
+        }
+
+        public EngineStateStats engineStateStats() {
+            return engineBootstrap.await().stateStats();
+        }
+
+        public ReconnectStats reconnectStats() {
+            return engineBootstrap.await().reconnectStats();
+        }
+
+        public DnsUpdateStats dnsUpdateStats() {
+            return engineBootstrap.await().dnsUpdateStats();
+        }
+
+        public LatencyHistogram handoverLatencyHistogram() {
+            return engineBootstrap.await().handoverLatencyHistogram();
+        }
+
+        /**
+         * @return handover counts by outcome, next to the recovery latency
+         */
+        public HandoverStats handoverStats() {
+            return engineBootstrap.await().handoverStats();
+        }
+
+        /**
+         * @return how long interface setups waited for the underlying network state
+         */
+        public LatencyHistogram dnsWaitHistogram() {
+            return engineBootstrap.await().dnsWaitHistogram();
+        }
+
+        /**
+         * @return results and latency of the address changes applied without a new interface
+         */
+        public AddressUpdateStats addressUpdateStats() {
+            return engineBootstrap.await().addressUpdateStats();
+        }
+
+        /**
+         * @return the network the tunnel is declared to run over and its bandwidth estimates
+         */
+        public UnderlyingNetworkStats underlyingNetworkStats() {
+            return engineBootstrap.await().underlyingNetworkStats();
         }
     }
     
@@ -0,0 +1,92 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ActiveTunnelTest {
+
+    private static TunConfig config(String address) {
+        return new TunConfig(new Route(address, 16), 1280, null,
+                Collections.emptyList(), Collections.singletonList(new Route("10.0.0.0", 8)));
+    }
+
+    // hands out increasing fd numbers and tracks which of them are still open
+    private static class FakeHandle implements ActiveTunnel.Handle {
+        private static int nextFd = 100;
+        final Set<Integer> openFds = new HashSet<>();
+        boolean closed = false;
+
+        @Override
+        public int dupFd() {
+            int fd = nextFd++;
+            openFds.add(fd);
+            return fd;
+        }
+
+        void engineCloses(int fd) {
+            Assert.assertTrue("fd " + fd + " closed twice", openFds.remove(fd));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void shouldHandOutAFreshFdWhenTheEngineRestartsWithinOneRun() throws Exception {
+        ActiveTunnel tunnel = new ActiveTunnel();
+        FakeHandle handle = new FakeHandle();
+
+        int first = tunnel.replace(config("100.64.0.5"), handle);
+        // the engine restarts and closes its fd, then asks for the same interface again
+        handle.engineCloses(first);
+        int second = tunnel.reuse(config("100.64.0.5"));
+
+        Assert.assertNotEquals(first, second);
+        Assert.assertTrue(handle.openFds.contains(second));
+        Assert.assertFalse(handle.closed);
+        handle.engineCloses(second);
+    }
+
+    @Test
+    public void shouldNotReuseAnInterfaceBuiltFromAnotherConfig() throws Exception {
+        ActiveTunnel tunnel = new ActiveTunnel();
+        Assert.assertEquals(-1, tunnel.reuse(config("100.64.0.5")));
+
+        tunnel.replace(config("100.64.0.5"), new FakeHandle());
+        Assert.assertEquals(-1, tunnel.reuse(config("100.64.0.6")));
+    }
+
+    @Test
+    public void shouldCloseThePreviousInterfaceWhenReplaced() throws Exception {
+        ActiveTunnel tunnel = new ActiveTunnel();
+        FakeHandle previous = new FakeHandle();
+        FakeHandle next = new FakeHandle();
+
+        tunnel.replace(config("100.64.0.5"), previous);
+        tunnel.replace(config("100.64.0.6"), next);
+
+        Assert.assertTrue(previous.closed);
+        Assert.assertFalse(next.closed);
+        Assert.assertEquals(config("100.64.0.6"), tunnel.config());
+    }
+
+    @Test
+    public void shouldForgetTheInterfaceWhenClosed() throws Exception {
+        ActiveTunnel tunnel = new ActiveTunnel();
+        FakeHandle handle = new FakeHandle();
+        tunnel.replace(config("100.64.0.5"), handle);
+
+        tunnel.close();
+        tunnel.updateConfig(config("100.64.0.6"));
+
+        Assert.assertTrue(handle.closed);
+        Assert.assertNull(tunnel.config());
+        Assert.assertEquals(-1, tunnel.reuse(config("100.64.0.5")));
+    }
+}
@@ -0,0 +1,60 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ConnectTimelineRecorderTest {
+
+    @Test
+    public void shouldKeepOnlyTheLastSessions() {
+        ConnectTimelineRecorder recorder = new ConnectTimelineRecorder(3);
+        for (int i = 0; i < 5; i++) {
+            recorder.begin();
+            if (i >= 3) {
+                recorder.mark(ConnectTimeline.Phase.CONNECTED);
+            }
+            recorder.end();
+        }
+
+        List<ConnectTimeline> timelines = recorder.snapshot();
+
+        Assert.assertEquals(3, timelines.size());
+        Assert.assertFalse(timelines.get(0).isConnected());
+        Assert.assertTrue(timelines.get(1).isConnected());
+        Assert.assertTrue(timelines.get(2).isConnected());
+    }
+
+    @Test
+    public void shouldIgnorePhasesOutsideOfASession() {
+        ConnectTimelineRecorder recorder = new ConnectTimelineRecorder(3);
+        recorder.mark(ConnectTimeline.Phase.CONNECTED);
+        recorder.begin();
+        recorder.end();
+        recorder.mark(ConnectTimeline.Phase.CONNECTED);
+
+        List<ConnectTimeline> timelines = recorder.snapshot();
+
+        Assert.assertEquals(1, timelines.size());
+        Assert.assertTrue(timelines.get(0).reached(ConnectTimeline.Phase.THREAD_STARTED));
+        Assert.assertFalse(timelines.get(0).isConnected());
+    }
+
+    @Test
+    public void shouldReturnNearestRankPercentiles() {
+        ConnectTimelineRecorder recorder = new ConnectTimelineRecorder(20);
+        List<ConnectTimeline> timelines = recorder.snapshot();
+        Assert.assertEquals(-1, ConnectTimeline.connectPercentile(timelines, 50));
+
+        for (int i = 1; i <= 10; i++) {
+            ConnectTimeline t = new ConnectTimeline(0);
+            t.mark(ConnectTimeline.Phase.CONNECTED, i * 1_000_000L);
+            timelines.add(t);
+        }
+        timelines.add(new ConnectTimeline(0));
+
+        Assert.assertEquals(5, ConnectTimeline.connectPercentile(timelines, 50));
+        Assert.assertEquals(10, ConnectTimeline.connectPercentile(timelines, 95));
+    }
+}
@@ -0,0 +1,85 @@
+package io.netbird.client.tool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DebouncedWriterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldWriteEditsOfOneWindowAsOneBatch() throws Exception {
+        List<List<String>> writes = new ArrayList<>();
+        DebouncedWriter<String> writer = new DebouncedWriter<>(writes::add, scheduler, 200);
+        CountDownLatch done = new CountDownLatch(5);
+
+        for (int i = 0; i < 5; i++) {
+            writer.submit("switch" + i, error -> done.countDown());
+        }
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, writes.size());
+        Assert.assertEquals(Arrays.asList("switch0", "switch1", "switch2", "switch3", "switch4"), writes.get(0));
+    }
+
+    @Test
+    public void shouldWriteImmediatelyOnFlush() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        DebouncedWriter<String> writer = new DebouncedWriter<>(batch -> writes.incrementAndGet(), scheduler, 60_000);
+        CountDownLatch done = new CountDownLatch(1);
+
+        writer.submit("key", error -> done.countDown());
+        writer.flush();
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, writes.get());
+    }
+
+    @Test
+    public void shouldReportTheWriteErrorToEveryEditOfTheBatch() throws Exception {
+        Exception failure = new Exception("disk full");
+        DebouncedWriter<String> writer = new DebouncedWriter<>(batch -> {
+            throw failure;
+        }, scheduler, 0);
+        List<Exception> errors = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        scheduler.execute(() -> {
+            // both edits are submitted before the scheduled write can run on this thread
+            writer.submit("a", errors::add);
+            writer.submit("b", error -> {
+                errors.add(error);
+                done.countDown();
+            });
+        });
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(failure, failure), errors);
+    }
+
+    @Test
+    public void shouldNotWriteWithoutEdits() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        DebouncedWriter<String> writer = new DebouncedWriter<>(batch -> writes.incrementAndGet(), scheduler, 0);
+
+        writer.flush();
+        scheduler.submit(() -> { }).get();
+
+        Assert.assertEquals(0, writes.get());
+    }
+}
@@ -0,0 +1,136 @@
+package io.netbird.client.tool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class DnsChangeDebouncerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final DnsUpdateStats stats = new DnsUpdateStats();
+    private final List<List<InetAddress>> updates = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldIgnoreOrderBehindTheFirstServer() throws Exception {
+        List<InetAddress> a = servers("192.168.1.1", "8.8.8.8", "2001:4860:4860::8888");
+        List<InetAddress> b = servers("192.168.1.1", "2001:4860:4860::8888", "8.8.8.8");
+        List<InetAddress> c = servers("8.8.8.8", "192.168.1.1", "2001:4860:4860::8888");
+
+        Assert.assertEquals(DnsChangeDebouncer.fingerprint(a, false), DnsChangeDebouncer.fingerprint(b, false));
+        Assert.assertNotEquals(DnsChangeDebouncer.fingerprint(a, false), DnsChangeDebouncer.fingerprint(c, false));
+        Assert.assertNotEquals(DnsChangeDebouncer.fingerprint(a, false), DnsChangeDebouncer.fingerprint(a, true));
+        Assert.assertNotEquals(DnsChangeDebouncer.fingerprint(a, false),
+                DnsChangeDebouncer.fingerprint(servers("192.168.1.1", "8.8.8.8"), false));
+        Assert.assertNotEquals(DnsChangeDebouncer.fingerprint(servers("8.8.8.8"), false),
+                DnsChangeDebouncer.fingerprint(servers("8.8.4.4"), false));
+    }
+
+    @Test
+    public void shouldCoalesceHandoverIntoOneUpdate() throws Exception {
+        List<InetAddress> wifi = servers("192.168.1.1");
+        DnsChangeDebouncer debouncer = new DnsChangeDebouncer(DnsChangeDebouncer.fingerprint(wifi, false),
+                scheduler, 100, updates::add, stats);
+
+        List<InetAddress> cellular = servers("10.10.10.10", "10.10.10.11");
+        debouncer.offer(Collections.emptyList(), false);
+        debouncer.offer(servers("10.10.10.10"), false);
+        debouncer.offer(servers("10.10.10.11", "10.10.10.10"), false);
+        debouncer.offer(cellular, false);
+        drain();
+
+        Assert.assertEquals(1, updates.size());
+        Assert.assertEquals(DnsChangeDebouncer.fingerprint(cellular, false),
+                DnsChangeDebouncer.fingerprint(updates.get(0), false));
+        Assert.assertEquals(1, stats.deliveredCount());
+        Assert.assertEquals(3, stats.suppressedCount());
+    }
+
+    @Test
+    public void shouldSuppressUpdateWithUnchangedServers() throws Exception {
+        List<InetAddress> wifi = servers("192.168.1.1", "192.168.1.2", "192.168.1.3");
+        DnsChangeDebouncer debouncer = new DnsChangeDebouncer(DnsChangeDebouncer.fingerprint(wifi, false),
+                scheduler, 50, updates::add, stats);
+
+        debouncer.offer(servers("192.168.1.1", "192.168.1.3", "192.168.1.2"), false);
+        drain();
+
+        Assert.assertTrue(updates.isEmpty());
+        Assert.assertEquals(1, stats.suppressedCount());
+    }
+
+    @Test
+    public void shouldNotDeliverAfterCancel() throws Exception {
+        DnsChangeDebouncer debouncer = new DnsChangeDebouncer(0, scheduler, 50, updates::add, stats);
+
+        debouncer.offer(servers("1.1.1.1"), false);
+        debouncer.cancel();
+        drain();
+
+        Assert.assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void shouldDeliverAgainAfterFailedUpdate() throws Exception {
+        List<InetAddress> initial = servers("192.168.1.1");
+        AtomicBoolean engineReady = new AtomicBoolean(false);
+        DnsChangeDebouncer debouncer = new DnsChangeDebouncer(DnsChangeDebouncer.fingerprint(initial, false),
+                scheduler, 50, servers -> {
+                    if (!engineReady.get()) {
+                        throw new Exception("engine not ready");
+                    }
+                    updates.add(servers);
+                }, stats);
+
+        debouncer.offer(servers("10.0.0.1"), false);
+        drain();
+        engineReady.set(true);
+        debouncer.offer(servers("10.0.0.1"), false);
+        drain();
+
+        Assert.assertEquals(1, stats.failedCount());
+        Assert.assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void shouldDeliverKnownServersWithoutWaiting() throws Exception {
+        List<InetAddress> cellular = servers("10.10.10.10");
+        List<InetAddress> home = servers("192.168.1.1", "fd00::1");
+        DnsChangeDebouncer debouncer = new DnsChangeDebouncer(DnsChangeDebouncer.fingerprint(cellular, false),
+                scheduler, 60_000, updates::add, stats);
+
+        debouncer.offer(servers("192.168.1.1"), false);
+        debouncer.offerNow(home, false);
+        scheduler.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(Collections.singletonList(home), updates);
+    }
+
+    private void drain() throws Exception {
+        // the flush is the only task and is due within the window
+        Thread.sleep(300);
+        scheduler.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<InetAddress> servers(String... addresses) throws Exception {
+        List<InetAddress> list = new ArrayList<>();
+        for (String a : Arrays.asList(addresses)) {
+            list.add(InetAddress.getByName(a));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,149 @@
+package io.netbird.client.tool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DnsProberTest {
+
+    private static final int TIMEOUT_MS = 300;
+
+    private final List<StandIn> standIns = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (StandIn s : standIns) {
+            s.close();
+        }
+    }
+
+    @Test
+    public void shouldRankResolversByMeasuredLatency() throws Exception {
+        StandIn fast = start("127.0.0.1", 0, 0, 0);
+        StandIn slow = start("127.0.0.2", fast.port(), 120, 0);
+        InetAddress dead = InetAddress.getByName("127.0.0.3");
+        DnsProber prober = new DnsProber(fast.port(), TIMEOUT_MS);
+        List<InetAddress> servers = Arrays.asList(dead, slow.address(), fast.address());
+
+        for (int i = 0; i < 3; i++) {
+            prober.probeAll(servers, socket -> { });
+        }
+
+        Assert.assertEquals(Arrays.asList(fast.address(), slow.address(), dead), prober.rank(servers));
+        Assert.assertEquals(0, prober.health(fast.address()).failureRate(), 0.0001);
+        Assert.assertTrue(prober.health(slow.address()).rttMillis() >= 100);
+        Assert.assertTrue(Double.isNaN(prober.health(dead).rttMillis()));
+        Assert.assertEquals(3, prober.health(dead).probes());
+    }
+
+    @Test
+    public void shouldRankFlakyResolverBehindSlowerReliableOne() throws Exception {
+        StandIn flaky = start("127.0.0.1", 0, 0, 2);
+        StandIn reliable = start("127.0.0.2", flaky.port(), 40, 0);
+        DnsProber prober = new DnsProber(flaky.port(), TIMEOUT_MS);
+        List<InetAddress> servers = Arrays.asList(flaky.address(), reliable.address());
+
+        for (int i = 0; i < 6; i++) {
+            prober.probeAll(servers, socket -> { });
+        }
+
+        Assert.assertTrue(prober.health(flaky.address()).failureRate() > 0.3);
+        Assert.assertEquals(Arrays.asList(reliable.address(), flaky.address()), prober.rank(servers));
+    }
+
+    @Test
+    public void shouldCountServfailAsFailure() throws Exception {
+        StandIn broken = start("127.0.0.1", 0, 0, 0);
+        broken.rcode = 2;
+        DnsProber prober = new DnsProber(broken.port(), TIMEOUT_MS);
+
+        Assert.assertFalse(prober.probe(broken.address(), socket -> { }));
+        Assert.assertEquals(1, prober.health(broken.address()).failureRate(), 0.0001);
+    }
+
+    @Test
+    public void shouldReportFailingResolverOnlyAfterProbes() throws Exception {
+        StandIn alive = start("127.0.0.1", 0, 0, 0);
+        InetAddress dead = InetAddress.getByName("127.0.0.3");
+        DnsProber prober = new DnsProber(alive.port(), TIMEOUT_MS);
+
+        Assert.assertFalse(prober.isFailing(dead));
+        prober.probeAll(Arrays.asList(alive.address(), dead), socket -> { });
+
+        Assert.assertTrue(prober.isFailing(dead));
+        Assert.assertFalse(prober.isFailing(alive.address()));
+    }
+
+    @Test
+    public void shouldKeepOrderOfUnprobedResolvers() throws Exception {
+        DnsProber prober = new DnsProber(DnsProber.DNS_PORT, TIMEOUT_MS);
+        List<InetAddress> servers = Arrays.asList(InetAddress.getByName("192.168.1.1"), InetAddress.getByName("1.1.1.1"));
+
+        Assert.assertEquals(servers, prober.rank(servers));
+    }
+
+    private StandIn start(String address, int port, long delayMillis, int dropEvery) throws Exception {
+        StandIn s = new StandIn(new InetSocketAddress(InetAddress.getByName(address), port), delayMillis, dropEvery);
+        standIns.add(s);
+        s.start();
+        return s;
+    }
+
+    // answers every query with an empty response after a delay, drops every n-th one if set
+    private static class StandIn extends Thread {
+        private final DatagramSocket socket;
+        private final long delayMillis;
+        private final int dropEvery;
+        volatile int rcode = 0;
+
+        StandIn(InetSocketAddress bind, long delayMillis, int dropEvery) throws SocketException {
+            socket = new DatagramSocket(bind);
+            this.delayMillis = delayMillis;
+            this.dropEvery = dropEvery;
+            setDaemon(true);
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        InetAddress address() {
+            return socket.getLocalAddress();
+        }
+
+        @Override
+        public void run() {
+            byte[] buf = new byte[512];
+            int received = 0;
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket query = new DatagramPacket(buf, buf.length);
+                    socket.receive(query);
+                    received++;
+                    if (dropEvery > 0 && received % dropEvery == 0) {
+                        continue;
+                    }
+                    Thread.sleep(delayMillis);
+                    buf[2] |= (byte) 0x80;
+                    buf[3] = (byte) ((buf[3] & 0xf0) | rcode);
+                    socket.send(new DatagramPacket(buf, query.getLength(), query.getSocketAddress()));
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            socket.close();
+        }
+    }
+}
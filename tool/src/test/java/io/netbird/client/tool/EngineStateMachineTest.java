@@ -0,0 +1,59 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EngineStateMachineTest {
+
+    @Test
+    public void shouldStartInStoppedState() {
+        EngineStateMachine machine = new EngineStateMachine();
+
+        Assert.assertEquals(EngineState.STOPPED, machine.state());
+    }
+
+    @Test
+    public void shouldFollowTheConnectLifecycle() {
+        EngineStateMachine machine = new EngineStateMachine();
+
+        Assert.assertTrue(machine.transition(EngineState.STARTING));
+        Assert.assertTrue(machine.transition(EngineState.CONNECTING));
+        Assert.assertTrue(machine.transition(EngineState.CONNECTED));
+        Assert.assertTrue(machine.transition(EngineState.STOPPING));
+        Assert.assertTrue(machine.transition(EngineState.STOPPED));
+
+        EngineStateStats stats = machine.stats();
+        Assert.assertEquals(0, stats.illegalTransitions());
+        Assert.assertEquals(1, stats.visits(EngineState.STOPPED));
+        Assert.assertEquals(1, stats.visits(EngineState.CONNECTED));
+        Assert.assertEquals(0, stats.visits(EngineState.FAILED));
+    }
+
+    @Test
+    public void shouldRejectAndCountIllegalTransitions() {
+        EngineStateMachine machine = new EngineStateMachine();
+
+        Assert.assertFalse(machine.transition(EngineState.CONNECTED));
+        Assert.assertFalse(machine.transition(EngineState.STOPPING));
+
+        Assert.assertEquals(EngineState.STOPPED, machine.state());
+        Assert.assertEquals(2, machine.stats().illegalTransitions());
+    }
+
+    @Test
+    public void shouldTreatTransitionToTheSameStateAsNoOp() {
+        EngineStateMachine machine = new EngineStateMachine();
+        machine.transition(EngineState.STARTING);
+
+        Assert.assertTrue(machine.transition(EngineState.STARTING));
+        Assert.assertEquals(0, machine.stats().visits(EngineState.STARTING));
+    }
+
+    @Test
+    public void shouldPutDwellTimesIntoBuckets() {
+        Assert.assertEquals(0, EngineStateStats.bucketOf(0));
+        Assert.assertEquals(0, EngineStateStats.bucketOf(100));
+        Assert.assertEquals(1, EngineStateStats.bucketOf(101));
+        Assert.assertEquals(EngineStateStats.BUCKET_BOUNDS_MILLIS.length, EngineStateStats.bucketOf(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,68 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HandoverTrackerTest {
+
+    private final HandoverTracker tracker = new HandoverTracker();
+
+    @Test
+    public void shouldMeasureUntilPeersConnectAgain() {
+        tracker.onPeers(3, 0);
+        tracker.onHandover(1_000);
+        tracker.onPeers(1, 1_400);
+        tracker.onPeers(0, 2_000);
+        tracker.onPeers(2, 3_500);
+        // later recoveries belong to the same handover
+        tracker.onPeers(3, 4_000);
+
+        LatencyHistogram latency = tracker.latency();
+        Assert.assertEquals(1, latency.count());
+        Assert.assertEquals(2_500, latency.maxMillis());
+    }
+
+    @Test
+    public void shouldMeasureUntilEngineConnected() {
+        tracker.onHandover(10_000);
+        tracker.onEngineConnected(10_750);
+
+        Assert.assertEquals(750, tracker.latency().maxMillis());
+    }
+
+    @Test
+    public void shouldCountHandoverWithoutDropAsUnaffected() {
+        tracker.onPeers(2, 0);
+        tracker.onHandover(1_000);
+        tracker.onPeers(2, 2_000);
+
+        long later = 1_000 + HandoverTracker.MAX_RECOVERY_MILLIS + 1;
+        tracker.onPeers(3, later);
+
+        Assert.assertEquals(0, tracker.latency().count());
+        Assert.assertEquals(1, tracker.unaffected(later));
+        Assert.assertEquals(1, tracker.handovers());
+    }
+
+    @Test
+    public void shouldCountDroppedPeersThatNeverRecoveredApart() {
+        tracker.onPeers(2, 0);
+        tracker.onHandover(1_000);
+        tracker.onPeers(0, 2_000);
+
+        long later = 1_000 + HandoverTracker.MAX_RECOVERY_MILLIS + 1;
+        tracker.onPeers(2, later);
+
+        Assert.assertEquals(0, tracker.latency().count());
+        Assert.assertEquals(0, tracker.unaffected(later));
+        Assert.assertEquals(1, tracker.unrecovered(later));
+    }
+
+    @Test
+    public void shouldIgnoreConnectsWithoutHandover() {
+        tracker.onEngineConnected(500);
+        tracker.onPeers(4, 600);
+
+        Assert.assertEquals(0, tracker.latency().count());
+    }
+}
@@ -0,0 +1,52 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldPlaceDurationsIntoBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(45_000);
+        histogram.record(600_000);
+
+        Assert.assertEquals(5, histogram.count());
+        Assert.assertEquals(1, histogram.bucket(0));
+        Assert.assertEquals(2, histogram.bucket(2));
+        Assert.assertEquals(1, histogram.bucket(histogram.bucketCount() - 3));
+        Assert.assertEquals(60_000, histogram.bucketUpperBoundMillis(histogram.bucketCount() - 3));
+        Assert.assertEquals(1, histogram.bucket(histogram.bucketCount() - 1));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.bucketUpperBoundMillis(histogram.bucketCount() - 1));
+        Assert.assertEquals(600_000, histogram.maxMillis());
+    }
+
+    @Test
+    public void shouldReportPercentilesCappedAtTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.percentileMillis(50));
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(0);
+        }
+        histogram.record(70);
+
+        Assert.assertEquals(0, histogram.percentileMillis(50));
+        Assert.assertEquals(0, histogram.percentileMillis(99));
+        Assert.assertEquals(70, histogram.percentileMillis(100));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1);
+        LatencyHistogram snapshot = histogram.snapshot();
+        histogram.record(1);
+
+        Assert.assertEquals(1, snapshot.count());
+        Assert.assertEquals(2, histogram.count());
+    }
+}
@@ -0,0 +1,52 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Collections;
+
+public class NetworkDnsCacheTest {
+
+    private static final int WIFI = 1;
+
+    @Test
+    public void shouldFindRejoinedNetworkByFingerprint() throws Exception {
+        NetworkDnsCache cache = new NetworkDnsCache(4);
+        NetworkDnsCache.Entry home = entry("192.168.1.1");
+        cache.put(100, "1|wlan0|[192.168.1.0/24]|192.168.1.1,|home.lan", home);
+
+        Assert.assertSame(home, cache.get(100, null));
+        Assert.assertSame(home, cache.get(205, "1|wlan0|[192.168.1.0/24]|192.168.1.1,|home.lan"));
+        Assert.assertNull(cache.get(206, "1|wlan0|[10.0.0.0/24]|10.0.0.1,|null"));
+        Assert.assertEquals(2, cache.hits());
+        Assert.assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedNetwork() throws Exception {
+        NetworkDnsCache cache = new NetworkDnsCache(2);
+        cache.put(1, "home", entry("192.168.1.1"));
+        cache.put(2, "office", entry("10.0.0.53"));
+        // touch home, office becomes the eldest
+        cache.get(1, "home");
+        cache.put(3, "train", entry("172.16.0.1"));
+
+        Assert.assertNotNull(cache.get(1, "home"));
+        Assert.assertNull(cache.get(2, "office"));
+        Assert.assertNotNull(cache.get(3, "train"));
+    }
+
+    @Test
+    public void shouldKeepNetworkWithoutFingerprintByHandleOnly() throws Exception {
+        NetworkDnsCache cache = new NetworkDnsCache(2);
+        cache.put(7, null, entry("10.10.10.10"));
+
+        Assert.assertNotNull(cache.get(7, null));
+        Assert.assertNull(cache.get(8, null));
+    }
+
+    private static NetworkDnsCache.Entry entry(String server) throws Exception {
+        return new NetworkDnsCache.Entry(Collections.singletonList(InetAddress.getByName(server)), false, 1500, WIFI);
+    }
+}
@@ -0,0 +1,49 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class NetworkGateTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final NetworkGate gate = new NetworkGate(30_000, now::get);
+
+    @Test
+    public void shouldBlockWithoutNetworkAndBehindCaptivePortal() {
+        Assert.assertTrue(gate.isBlocked());
+        Assert.assertTrue(gate.update(NetworkAvailability.CAPTIVE_PORTAL));
+
+        now.addAndGet(3_600_000);
+        Assert.assertTrue(gate.isBlocked());
+        Assert.assertEquals(0, gate.graceRemainingMillis());
+
+        Assert.assertFalse(gate.update(NetworkAvailability.VALIDATED));
+    }
+
+    @Test
+    public void shouldTryUnvalidatedNetworkAfterGracePeriod() {
+        Assert.assertTrue(gate.update(NetworkAvailability.UNVALIDATED));
+        Assert.assertEquals(30_000, gate.graceRemainingMillis());
+
+        now.addAndGet(20_000);
+        // more callbacks of the same network do not restart the grace period
+        Assert.assertTrue(gate.update(NetworkAvailability.UNVALIDATED));
+        Assert.assertEquals(10_000, gate.graceRemainingMillis());
+
+        now.addAndGet(10_000);
+        Assert.assertFalse(gate.isBlocked());
+    }
+
+    @Test
+    public void shouldRestartGracePeriodAfterNetworkLoss() {
+        gate.update(NetworkAvailability.UNVALIDATED);
+        now.addAndGet(40_000);
+        Assert.assertFalse(gate.isBlocked());
+
+        gate.update(NetworkAvailability.NONE);
+        Assert.assertTrue(gate.update(NetworkAvailability.UNVALIDATED));
+        Assert.assertEquals(30_000, gate.graceRemainingMillis());
+    }
+}
@@ -0,0 +1,130 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+import io.netbird.client.tool.wg.BackendException;
+
+public class ReconnectSupervisorTest {
+
+    @Test
+    public void shouldClassifyFailures() {
+        Assert.assertEquals(EngineFailure.TUN_CREATION, EngineFailure.classify(
+                new Exception(new BackendException(BackendException.Reason.TUN_CREATION_ERROR))));
+        Assert.assertEquals(EngineFailure.AUTH, EngineFailure.classify(
+                new Exception("rpc error: code = PermissionDenied desc = peer login has expired")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("rpc error: code = Unavailable desc = connection error")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("login failed: rpc error: code = Unavailable desc = token endpoint unreachable")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("login failed: rpc error: code = DeadlineExceeded desc = context deadline exceeded")));
+        Assert.assertEquals(EngineFailure.AUTH, EngineFailure.classify(
+                new Exception("rpc error: code = Unauthenticated desc = connection refused by policy")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("failed to login: dial tcp 10.0.0.1:443: i/o timeout")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("login token refresh: context deadline exceeded")));
+        Assert.assertEquals(EngineFailure.NETWORK_UNAVAILABLE, EngineFailure.classify(
+                new Exception("session expired: connection reset by peer")));
+        Assert.assertEquals(EngineFailure.AUTH, EngineFailure.classify(
+                new Exception("failed to login: unauthorized")));
+        Assert.assertEquals(EngineFailure.UNKNOWN, EngineFailure.classify(
+                new Exception("failed to login: invalid setup key format")));
+        Assert.assertEquals(EngineFailure.UNKNOWN, EngineFailure.classify(new Exception()));
+        Assert.assertEquals(EngineFailure.UNKNOWN, EngineFailure.classify(new Exception("boom")));
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyWithinJitterBounds() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(42));
+        long ceiling = ReconnectSupervisor.BASE_DELAY_MILLIS;
+        for (int i = 0; i < 20; i++) {
+            long delay = supervisor.onFailure(EngineFailure.NETWORK_UNAVAILABLE);
+            Assert.assertTrue("delay " + delay + " below " + ceiling / 2, delay >= ceiling / 2);
+            Assert.assertTrue("delay " + delay + " above " + ceiling, delay <= ceiling);
+            ceiling = Math.min(ceiling * 2, ReconnectSupervisor.MAX_DELAY_MILLIS);
+        }
+
+        Assert.assertEquals(20, supervisor.stats().attempts());
+        Assert.assertEquals(20, supervisor.stats().failures(EngineFailure.NETWORK_UNAVAILABLE));
+    }
+
+    @Test
+    public void shouldSpreadRetriesOfSimultaneousFailures() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        Random seeds = new Random(7);
+        for (int device = 0; device < 100; device++) {
+            ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(seeds.nextLong()));
+            long delay = 0;
+            for (int i = 0; i < 5; i++) {
+                delay = supervisor.onFailure(EngineFailure.UNKNOWN);
+            }
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        Assert.assertTrue(max - min > ReconnectSupervisor.BASE_DELAY_MILLIS);
+    }
+
+    @Test
+    public void shouldNotRetryAuthFailures() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(1));
+
+        Assert.assertEquals(-1, supervisor.onFailure(EngineFailure.AUTH));
+        Assert.assertEquals(1, supervisor.stats().givenUp());
+        Assert.assertEquals(0, supervisor.stats().attempts());
+        Assert.assertEquals(EngineFailure.AUTH, supervisor.stats().lastFailure());
+    }
+
+    @Test
+    public void shouldGiveUpOnRepeatedTunCreationFailures() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(1));
+        for (int i = 0; i < ReconnectSupervisor.MAX_TUN_CREATION_ATTEMPTS; i++) {
+            Assert.assertTrue(supervisor.onFailure(EngineFailure.TUN_CREATION) >= 0);
+        }
+
+        Assert.assertEquals(-1, supervisor.onFailure(EngineFailure.TUN_CREATION));
+    }
+
+    @Test
+    public void shouldStartOverAfterConnecting() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(1));
+        for (int i = 0; i < 10; i++) {
+            supervisor.onFailure(EngineFailure.UNKNOWN);
+        }
+        supervisor.onConnected();
+
+        Assert.assertEquals(1, supervisor.stats().recovered());
+        Assert.assertEquals(0, supervisor.stats().consecutiveFailures());
+        Assert.assertTrue(supervisor.onFailure(EngineFailure.UNKNOWN) <= ReconnectSupervisor.BASE_DELAY_MILLIS);
+    }
+
+    @Test
+    public void shouldStartBackoffOverWhenNetworkIsRestored() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(7));
+        for (int i = 0; i < 10; i++) {
+            supervisor.onFailure(EngineFailure.NETWORK_UNAVAILABLE);
+        }
+        supervisor.onParked();
+        supervisor.onNetworkRestored();
+
+        Assert.assertEquals(0, supervisor.stats().consecutiveFailures());
+        Assert.assertEquals(1, supervisor.stats().parked());
+        Assert.assertTrue(supervisor.onFailure(EngineFailure.NETWORK_UNAVAILABLE) <= ReconnectSupervisor.BASE_DELAY_MILLIS);
+    }
+
+    @Test
+    public void shouldKeepCountingTunFailuresWhenNetworkIsRestored() {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(new Random(7));
+        for (int i = 0; i < ReconnectSupervisor.MAX_TUN_CREATION_ATTEMPTS; i++) {
+            supervisor.onFailure(EngineFailure.TUN_CREATION);
+        }
+        supervisor.onNetworkRestored();
+
+        Assert.assertEquals(-1, supervisor.onFailure(EngineFailure.TUN_CREATION));
+    }
+}
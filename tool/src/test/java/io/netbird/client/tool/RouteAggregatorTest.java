@@ -0,0 +1,136 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RouteAggregatorTest {
+
+    @Test
+    public void shouldDropDuplicatesAndCoveredRoutes() {
+        List<Route> routes = RouteAggregator.aggregate(routes(
+                "10.1.2.0/24", "10.0.0.0/8", "10.0.0.0/8", "192.168.1.0/24", "192.168.1.7/32"));
+
+        Assert.assertEquals(Arrays.asList("10.0.0.0/8", "192.168.1.0/24"), toStrings(routes));
+    }
+
+    @Test
+    public void shouldMergeAdjacentPrefixes() {
+        List<Route> routes = RouteAggregator.aggregate(routes(
+                "172.16.0.0/25", "172.16.0.128/25", "172.16.1.0/24", "172.16.3.0/24"));
+
+        Assert.assertEquals(Arrays.asList("172.16.0.0/23", "172.16.3.0/24"), toStrings(routes));
+    }
+
+    @Test
+    public void shouldMaskHostBits() {
+        List<Route> routes = RouteAggregator.aggregate(routes("10.1.2.3/16"));
+
+        Assert.assertEquals(Arrays.asList("10.1.0.0/16"), toStrings(routes));
+    }
+
+    @Test
+    public void shouldAggregateIPv6SeparatelyFromIPv4() {
+        List<Route> routes = RouteAggregator.aggregate(routes(
+                "fd00:1234::/33", "fd00:1234:8000::/33", "fd00:1234::1/128", "0.0.0.0/1", "128.0.0.0/1"));
+
+        Assert.assertEquals(Arrays.asList("0.0.0.0/0", "fd00:1234:0:0:0:0:0:0/32"), toStrings(routes));
+    }
+
+    @Test
+    public void shouldCollapseAFullRangeOfHostRoutes() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 4096; i++) {
+            input.append("10.8.").append(i >> 8).append('.').append(i & 0xff).append("/32;");
+        }
+
+        List<Route> routes = RouteAggregator.aggregate(parse(input.toString()));
+
+        Assert.assertEquals(Arrays.asList("10.8.0.0/20"), toStrings(routes));
+    }
+
+    @Test
+    public void shouldKeepDisjointHostRoutesAcrossTheIPv6Word() {
+        CidrTrie trie = new CidrTrie(128);
+        trie.add(0, 1, 128);
+        trie.add(0, 2, 128);
+        trie.aggregate();
+        List<String> prefixes = new ArrayList<>();
+        trie.forEach((hi, lo, prefixLength) -> prefixes.add(hi + ":" + lo + "/" + prefixLength));
+
+        Assert.assertEquals(Arrays.asList("0:1/128", "0:2/128"), prefixes);
+    }
+
+    @Test
+    public void shouldCutLocalSubnetOutOfTheDefaultRoute() {
+        RouteAggregator.Result result = RouteAggregator.aggregate(
+                routes("0.0.0.0/0"), routes(), routes("192.168.1.23/24"), true, false);
+
+        List<String> cidrs = toStrings(result.routes);
+        Assert.assertEquals(24, cidrs.size());
+        Assert.assertEquals("0.0.0.0/1", cidrs.get(0));
+        Assert.assertTrue(cidrs.contains("192.168.0.0/24"));
+        Assert.assertTrue(cidrs.contains("192.168.2.0/23"));
+        Assert.assertFalse(cidrs.contains("192.168.1.0/24"));
+        Assert.assertTrue(result.excluded.isEmpty());
+        Assert.assertTrue(result.lanOverlaps.isEmpty());
+    }
+
+    @Test
+    public void shouldReportExclusionsWhenExcludeRouteIsAvailable() {
+        RouteAggregator.Result result = RouteAggregator.aggregate(
+                routes("0.0.0.0/0", "::/0"), routes("10.10.0.0/16"), routes("192.168.1.23/24", "2001:db8::5/64"), true, true);
+
+        Assert.assertEquals(Arrays.asList("0.0.0.0/0", "0:0:0:0:0:0:0:0/0"), toStrings(result.routes));
+        Assert.assertEquals(Arrays.asList("10.10.0.0/16", "192.168.1.0/24", "2001:db8:0:0:0:0:0:0/64"),
+                toStrings(result.excluded));
+    }
+
+    @Test
+    public void shouldDropRoutesInsideAnExclusion() {
+        RouteAggregator.Result result = RouteAggregator.aggregate(
+                routes("10.10.1.0/24", "172.16.0.0/12"), routes("10.10.0.0/16"), routes(), true, true);
+
+        Assert.assertEquals(Arrays.asList("172.16.0.0/12"), toStrings(result.routes));
+        Assert.assertTrue(result.excluded.isEmpty());
+    }
+
+    @Test
+    public void shouldKeepAndReportRoutesThatOverlapTheLocalSubnet() {
+        RouteAggregator.Result result = RouteAggregator.aggregate(
+                routes("192.168.1.0/24", "10.0.0.0/8"), routes(), routes("192.168.1.5/24", "172.20.0.1/16"), true, false);
+
+        Assert.assertEquals(Arrays.asList("10.0.0.0/8", "192.168.1.0/24"), toStrings(result.routes));
+        Assert.assertEquals(Arrays.asList("192.168.1.0/24"), toStrings(result.lanOverlaps));
+    }
+
+    @Test
+    public void shouldOnlyReportLocalSubnetsWithoutBypass() {
+        RouteAggregator.Result result = RouteAggregator.aggregate(
+                routes("0.0.0.0/0"), routes(), routes("192.168.1.5/24"), false, false);
+
+        Assert.assertEquals(Arrays.asList("0.0.0.0/0"), toStrings(result.routes));
+        Assert.assertEquals(Arrays.asList("192.168.1.0/24"), toStrings(result.lanOverlaps));
+    }
+
+    private static RouteParser routes(String... routes) {
+        return parse(String.join(";", routes));
+    }
+
+    private static RouteParser parse(String routes) {
+        RouteParser parser = new RouteParser();
+        parser.parse(routes);
+        return parser;
+    }
+
+    private static List<String> toStrings(List<Route> routes) {
+        List<String> list = new ArrayList<>();
+        for (Route r : routes) {
+            list.add(r.addr + "/" + r.prefixLength);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,42 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class RouteDeltaTest {
+
+    @Test
+    public void shouldParseMixedSeparators() {
+        Set<String> routes = RouteDelta.parse(" 10.0.0.0/8,192.168.1.0/24; 10.0.0.0/8\n172.16.0.0/12 ");
+
+        Assert.assertEquals(Arrays.asList("10.0.0.0/8", "192.168.1.0/24", "172.16.0.0/12"), Arrays.asList(routes.toArray()));
+        Assert.assertTrue(RouteDelta.parse(null).isEmpty());
+        Assert.assertTrue(RouteDelta.parse(" ,; ").isEmpty());
+    }
+
+    @Test
+    public void shouldSplitRoutesIntoAddedRemovedAndUnchanged() {
+        RouteDelta delta = RouteDelta.compute(
+                RouteDelta.parse("10.0.0.0/8,192.168.1.0/24"),
+                RouteDelta.parse("192.168.1.0/24,172.16.0.0/12"));
+
+        Assert.assertEquals(Collections.singletonList("172.16.0.0/12"), delta.getAdded());
+        Assert.assertEquals(Collections.singletonList("10.0.0.0/8"), delta.getRemoved());
+        Assert.assertEquals(Collections.singletonList("192.168.1.0/24"), delta.getUnchanged());
+        Assert.assertFalse(delta.isEmpty());
+    }
+
+    @Test
+    public void shouldBeEmptyWhenOnlyTheOrderChanged() {
+        RouteDelta delta = RouteDelta.compute(
+                RouteDelta.parse("10.0.0.0/8,192.168.1.0/24"),
+                RouteDelta.parse("192.168.1.0/24 10.0.0.0/8"));
+
+        Assert.assertTrue(delta.isEmpty());
+        Assert.assertEquals(2, delta.getUnchanged().size());
+    }
+}
@@ -0,0 +1,89 @@
+package io.netbird.client.tool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import io.netbird.client.tool.wg.InetAddresses;
+
+/**
+ * Compares {@link RouteParser} with the split based parsing IFace used before. Not part of the
+ * unit tests, run {@link #main(String[])} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteParserBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int routeCount;
+
+    private String routes;
+    private final RouteParser parser = new RouteParser();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RouteParserBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        routes = generateRoutes(routeCount);
+    }
+
+    @Benchmark
+    public int routeParser() {
+        return parser.parse(routes);
+    }
+
+    @Benchmark
+    public LinkedList<InetAddress> splitAndParse() throws Exception {
+        LinkedList<InetAddress> list = new LinkedList<>();
+        for (String route : routes.split(";")) {
+            String[] r = route.split("/");
+            if (r.length != 2) {
+                throw new Exception("invalid route");
+            }
+            Integer.parseInt(r[1]);
+            list.add(InetAddresses.parse(r[0]));
+        }
+        return list;
+    }
+
+    /**
+     * Every eighth route is IPv6, like a network that pushes both families.
+     */
+    static String generateRoutes(int count) {
+        StringBuilder sb = new StringBuilder(count * 18);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(';');
+            }
+            if (i % 8 == 7) {
+                sb.append("fd00:").append(Integer.toHexString(i >>> 16)).append(':')
+                        .append(Integer.toHexString(i & 0xffff)).append("::/64");
+            } else {
+                sb.append("10.").append((i >>> 16) & 0xff).append('.').append((i >>> 8) & 0xff)
+                        .append('.').append(i & 0xff).append("/32");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RouteParserTest {
+
+    @Test
+    public void shouldParseIPv4Prefixes() {
+        RouteParser parser = new RouteParser();
+
+        Assert.assertEquals(2, parser.parse("10.0.0.0/8; 192.168.255.1/32"));
+
+        Assert.assertEquals(2, parser.v4Count());
+        Assert.assertEquals("10.0.0.0", RouteParser.formatV4(parser.v4Address(0)));
+        Assert.assertEquals(8, parser.v4PrefixLength(0));
+        Assert.assertEquals("192.168.255.1", RouteParser.formatV4(parser.v4Address(1)));
+        Assert.assertEquals(32, parser.v4PrefixLength(1));
+    }
+
+    @Test
+    public void shouldParseIPv6Prefixes() {
+        RouteParser parser = new RouteParser();
+
+        Assert.assertEquals(5, parser.parse("fd00:1234::/32;::/0;1:2:3:4:5:6:7:8/128;::ffff:192.0.2.1/128;FE80::1"));
+
+        Assert.assertEquals(5, parser.v6Count());
+        Assert.assertEquals("fd00:1234:0:0:0:0:0:0", RouteParser.formatV6(parser.v6High(0), parser.v6Low(0)));
+        Assert.assertEquals(32, parser.v6PrefixLength(0));
+        Assert.assertEquals("0:0:0:0:0:0:0:0", RouteParser.formatV6(parser.v6High(1), parser.v6Low(1)));
+        Assert.assertEquals(0, parser.v6PrefixLength(1));
+        Assert.assertEquals("1:2:3:4:5:6:7:8", RouteParser.formatV6(parser.v6High(2), parser.v6Low(2)));
+        Assert.assertEquals("0:0:0:0:0:ffff:c000:201", RouteParser.formatV6(parser.v6High(3), parser.v6Low(3)));
+        Assert.assertEquals("fe80:0:0:0:0:0:0:1", RouteParser.formatV6(parser.v6High(4), parser.v6Low(4)));
+        Assert.assertEquals(128, parser.v6PrefixLength(4));
+    }
+
+    @Test
+    public void shouldSkipMalformedEntries() {
+        RouteParser parser = new RouteParser();
+
+        int valid = parser.parse("10.0.0.0/33;256.0.0.0/8;10.0.0/8;1::2::3/64;1:2:3:4:5:6:7:8:9/128;"
+                + "10.0.0.0/8x;abc;fd00::/129;;10.1.0.0/16;");
+
+        Assert.assertEquals(1, valid);
+        Assert.assertEquals(8, parser.invalidCount());
+        Assert.assertEquals("10.1.0.0", RouteParser.formatV4(parser.v4Address(0)));
+    }
+
+    @Test
+    public void shouldReuseArraysAcrossCalls() {
+        RouteParser parser = new RouteParser();
+        Assert.assertEquals(50_000, parser.parse(RouteParserBenchmark.generateRoutes(50_000)));
+
+        Assert.assertEquals(1, parser.parse("10.0.0.0/8"));
+        Assert.assertEquals(1, parser.v4Count());
+        Assert.assertEquals(0, parser.v6Count());
+        Assert.assertEquals(0, parser.parse(null));
+    }
+}
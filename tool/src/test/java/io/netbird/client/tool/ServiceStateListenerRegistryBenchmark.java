@@ -0,0 +1,140 @@
+package io.netbird.client.tool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of an engine control command while state changes are dispatched to slow listeners. The
+ * registry group mirrors EngineRunner: the state change is posted to the mailbox, which hands it
+ * to the registry, and the control command reads the state machine on the mailbox. The monitor
+ * group is the design EngineRunner used before, where both held the runner's monitor. Not part of
+ * the unit tests, run {@link #main(String[])} from the IDE.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceStateListenerRegistryBenchmark {
+
+    private static final long SLOW_LISTENER_NANOS = 20_000;
+
+    @Param({"1", "10", "100"})
+    public int listenerCount;
+
+    private ExecutorService mailbox;
+    private ExecutorService callbacks;
+    private ServiceStateListenerRegistry registry;
+    private final EngineStateMachine stateMachine = new EngineStateMachine();
+    private final MonitorRunner monitorRunner = new MonitorRunner();
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ServiceStateListenerRegistryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        mailbox = Executors.newSingleThreadExecutor();
+        callbacks = Executors.newSingleThreadExecutor();
+        registry = new ServiceStateListenerRegistry(callbacks);
+        for (int i = 0; i < listenerCount; i++) {
+            registry.add(new SlowListener(), false);
+            monitorRunner.add(new SlowListener());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailbox.shutdownNow();
+        callbacks.shutdownNow();
+    }
+
+    // waits until every listener got the change, so the callback queue does not grow unbounded
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(1)
+    public void registryStateChange() throws Exception {
+        mailbox.submit(registry::notifyStarted).get();
+        callbacks.submit(() -> { }).get();
+    }
+
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(1)
+    public EngineState registryControl() throws Exception {
+        return mailbox.submit(stateMachine::state).get();
+    }
+
+    @Benchmark
+    @Group("monitor")
+    @GroupThreads(1)
+    public void monitorStateChange() {
+        monitorRunner.notifyStarted();
+    }
+
+    @Benchmark
+    @Group("monitor")
+    @GroupThreads(1)
+    public EngineState monitorControl() {
+        return monitorRunner.state();
+    }
+
+    private static class SlowListener implements ServiceStateListener {
+        @Override
+        public void onStarted() {
+            long end = System.nanoTime() + SLOW_LISTENER_NANOS;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void onStopped() {
+        }
+
+        @Override
+        public void onError(String msg) {
+        }
+    }
+
+    // the fan-out EngineRunner used before: callbacks run under the same monitor as engine control
+    private class MonitorRunner {
+        private final Set<ServiceStateListener> listeners = new HashSet<>();
+
+        synchronized void add(ServiceStateListener listener) {
+            listeners.add(listener);
+        }
+
+        synchronized void notifyStarted() {
+            for (ServiceStateListener l : listeners) {
+                l.onStarted();
+            }
+        }
+
+        synchronized EngineState state() {
+            return stateMachine.state();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.netbird.client.tool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SnapshotCacheTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(10_000);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldServeAllReadersFromTheSameSnapshot() {
+        SnapshotCache<Integer> cache = new SnapshotCache<>(fetches::incrementAndGet, scheduler, 1000, s -> {}, now::get);
+
+        SnapshotCache.Snapshot<Integer> first = cache.get();
+        SnapshotCache.Snapshot<Integer> second = cache.get();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, fetches.get());
+        Assert.assertEquals(1, first.version());
+    }
+
+    @Test
+    public void shouldCoalesceInvalidationsIntoOneRefresh() throws InterruptedException {
+        CountDownLatch refreshed = new CountDownLatch(1);
+        AtomicInteger notifications = new AtomicInteger();
+        SnapshotCache<Integer> cache = new SnapshotCache<>(fetches::incrementAndGet, scheduler, 1000, s -> {
+            notifications.incrementAndGet();
+            refreshed.countDown();
+        }, now::get);
+        cache.get();
+
+        // the refresh is due in 200 ms, after the invalidations, however slow the machine
+        now.addAndGet(800);
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate();
+        }
+
+        Assert.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        Assert.assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, fetches.get());
+        Assert.assertEquals(1, notifications.get());
+        Assert.assertEquals(2, cache.get().version());
+    }
+
+    @Test
+    public void shouldKeepTheSnapshotWithinTheInterval() {
+        SnapshotCache<Integer> cache = new SnapshotCache<>(fetches::incrementAndGet, scheduler, 60_000, s -> {}, now::get);
+        SnapshotCache.Snapshot<Integer> first = cache.get();
+
+        cache.invalidate();
+        now.addAndGet(1000);
+
+        Assert.assertSame(first, cache.get());
+        Assert.assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void shouldRefreshOnReadOnceTheIntervalPassed() {
+        SnapshotCache<Integer> cache = new SnapshotCache<>(fetches::incrementAndGet, scheduler, 60_000, s -> {}, now::get);
+        cache.get();
+
+        cache.invalidate();
+        now.addAndGet(60_000);
+
+        Assert.assertEquals(2, cache.get().version());
+        Assert.assertEquals(2, fetches.get());
+    }
+}
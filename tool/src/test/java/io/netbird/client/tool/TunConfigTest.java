@@ -0,0 +1,69 @@
+package io.netbird.client.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class TunConfigTest {
+
+    private static TunConfig config(String dns, String... routes) {
+        RouteParser parser = new RouteParser();
+        parser.parse(String.join(";", routes));
+        return new TunConfig(new Route("100.64.0.5", 16), 1280, dns,
+                Collections.singletonList("netbird.cloud"), RouteAggregator.aggregate(parser));
+    }
+
+    @Test
+    public void shouldBeEqualWhenOnlyTheRouteOrderDiffers() {
+        TunConfig a = config("100.64.0.5", "10.0.0.0/8", "192.168.0.0/16");
+        TunConfig b = config("100.64.0.5", "192.168.0.0/16", "10.0.0.0/8", "10.1.0.0/16");
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+        Assert.assertTrue(b.changedFields(a).isEmpty());
+    }
+
+    @Test
+    public void shouldNameTheChangedFields() {
+        TunConfig a = config("100.64.0.5", "10.0.0.0/8");
+        TunConfig b = config(null, "10.0.0.0/8", "172.16.0.0/12");
+
+        Assert.assertNotEquals(a, b);
+        Assert.assertEquals(Arrays.asList("dns", "routes"), b.changedFields(a));
+    }
+
+    @Test
+    public void shouldOnlyChangeTheAddress() {
+        TunConfig a = config("100.64.0.5", "10.0.0.0/8");
+
+        TunConfig b = a.withAddress(new Route("100.64.0.9", 16));
+
+        Assert.assertEquals(Collections.singletonList("address"), b.changedFields(a));
+        Assert.assertEquals(a.routes, b.routes);
+    }
+
+    @Test
+    public void shouldDetectSplitTunnelChanges() {
+        TunConfig a = config("100.64.0.5", "10.0.0.0/8");
+        SplitTunnelResolver.Resolved deny = new SplitTunnelResolver.Resolved(SplitTunnelMode.DENY,
+                new HashSet<>(Collections.singletonList("com.example.video")));
+        TunConfig b = new TunConfig(a.address, a.mtu, a.dns, a.searchDomains, a.routes, a.excludedRoutes, deny, a.metered);
+
+        Assert.assertEquals(Collections.singletonList("splitTunnel"), b.changedFields(a));
+        Assert.assertEquals(SplitTunnelMode.ALLOW, SplitTunnelMode.parse(" allow ", SplitTunnelMode.OFF));
+        Assert.assertEquals(SplitTunnelMode.OFF, SplitTunnelMode.parse("bogus", SplitTunnelMode.OFF));
+    }
+
+    @Test
+    public void shouldDetectMeteredChanges() {
+        TunConfig a = config("100.64.0.5", "10.0.0.0/8");
+        TunConfig b = new TunConfig(a.address, a.mtu, a.dns, a.searchDomains, a.routes, a.excludedRoutes, a.splitTunnel, false);
+
+        Assert.assertTrue(a.metered);
+        Assert.assertEquals(Collections.singletonList("metered"), b.changedFields(a));
+        Assert.assertEquals(b, b.withAddress(b.address));
+    }
+}